@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.lang.reflect.Method;
+import java.rmi.AlreadyBoundException;
+
+/**
+ * The menu used by the benchmarks. Besides its annotated options any count
+ * of generated options can be added, which all call the same empty method.
+ */
+public class BenchMenu extends AssmusMenu {
+    final static Method ACTION;
+
+    static {
+        try {
+            ACTION = BenchMenu.class.getDeclaredMethod("action");
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public BenchMenu() throws AlreadyBoundException {
+        this(new MemoryIO("", false));
+    }
+
+    public BenchMenu(TerminalIO io) throws AlreadyBoundException {
+        super("Benchmark", io);
+    }
+
+    /**
+     * Creates a menu with the passed count of generated options. Their
+     * patterns are "o0", "o1", ...
+     *
+     * @param count <int>
+     * @return <BenchMenu>
+     */
+    static BenchMenu withOptions(int count) throws AlreadyBoundException {
+        return withOptions(count, new MemoryIO("", false));
+    }
+
+    /**
+     * Creates a menu with the passed count of generated options,
+     * which is connected to the passed TerminalIO.
+     *
+     * @param count <int>
+     * @param io <TerminalIO>
+     * @return <BenchMenu>
+     */
+    static BenchMenu withOptions(int count, TerminalIO io) throws AlreadyBoundException {
+        BenchMenu menu = new BenchMenu(io);
+
+        for (int i = 0; i < count; i++) {
+            menu.add(new Option("Option " + i, "o" + i, ACTION));
+        }
+
+        return menu;
+    }
+
+    @MenuOption(name = "Info", pattern = "i")
+    public void info() {}
+
+    @MenuOption(name = "Quit", pattern = "q")
+    public boolean quit() {
+        return true;
+    }
+
+    public void action() {}
+
+    @OnUnknownInput
+    public void onUnknownInput() {}
+}
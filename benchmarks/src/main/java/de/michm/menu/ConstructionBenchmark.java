@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.AlreadyBoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of a menu with the cached class metadata
+ * and the reflective scan of a menu class, which is done once per class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Benchmark
+    public AssmusMenu construct() throws AlreadyBoundException {
+        return new BenchMenu();
+    }
+
+    @Benchmark
+    public Object scan() {
+        return MenuMetadata.scan(BenchMenu.class);
+    }
+}
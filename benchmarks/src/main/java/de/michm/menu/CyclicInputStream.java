@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An endless InputStream, which repeats the passed text, so the read
+ * benchmarks never reach the end of the input.
+ */
+final class CyclicInputStream extends InputStream {
+    final private byte[] data;
+    private int position;
+
+    CyclicInputStream(String text) {
+        this.data = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int read() {
+        byte b = data[position];
+        position = (position + 1) % data.length;
+        return b & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buf, int offset, int length) {
+        int count = Math.min(length, data.length - position);
+        System.arraycopy(data, position, buf, offset, count);
+        position = (position + count) % data.length;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return data.length - position;
+    }
+}
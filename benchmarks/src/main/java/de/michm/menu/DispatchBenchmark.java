@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.rmi.AlreadyBoundException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the option lookup in run() and the invocation of an Option.
+ * Each run() executes a script of 1024 selections of random options
+ * without rendering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    final static int SELECTIONS = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int options;
+
+    private BenchMenu menu;
+    private Option option;
+    private String script;
+
+    @Setup
+    public void setup() throws AlreadyBoundException {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < SELECTIONS; i++) {
+            text.append('o').append(random.nextInt(options)).append('\n');
+        }
+
+        menu = BenchMenu.withOptions(options);
+        option = menu.get(menu.size() - 1);
+        script = text.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SELECTIONS)
+    public void run() {
+        menu.runScript(new StringReader(script), null);
+    }
+
+    @Benchmark
+    public Object invoke() throws Exception {
+        return option.invoke(menu);
+    }
+}
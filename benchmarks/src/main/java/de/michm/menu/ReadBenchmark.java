@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.rmi.AlreadyBoundException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures read() for every built-in type and the primitive readers.
+ * The menu reads from an endless stream of a matching input line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+    final static Map<String, Class<?>> TYPES = Map.of(
+            "String", String.class,
+            "Short", Short.class,
+            "Integer", Integer.class,
+            "Long", Long.class,
+            "Double", Double.class,
+            "Float", Float.class,
+            "Byte", Byte.class,
+            "Boolean", Boolean.class,
+            "BigInteger", BigInteger.class,
+            "BigDecimal", BigDecimal.class
+    );
+
+    @Param({"String", "Short", "Integer", "Long", "Double", "Float", "Byte", "Boolean", "BigInteger", "BigDecimal"})
+    public String type;
+
+    private Class<?> typeClass;
+    private BenchMenu menu;
+
+    @Setup
+    public void setup() throws AlreadyBoundException {
+        String line = type.equals("Boolean") ? "true\n" : "42\n";
+
+        typeClass = TYPES.get(type);
+        menu = new BenchMenu(TerminalIO.of(new CyclicInputStream(line), OutputStream.nullOutputStream(), false));
+    }
+
+    @Benchmark
+    public Object read() {
+        return menu.read(typeClass);
+    }
+
+    @Benchmark
+    public long readPrimitive() throws IOException {
+        return switch (type) {
+            case "Boolean" -> menu.readBoolean() ? 1 : 0;
+            case "Double", "Float", "BigDecimal" -> (long) menu.readDouble();
+            case "Long", "BigInteger" -> menu.readLong();
+            default -> menu.readInt();
+        };
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.rmi.AlreadyBoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a redraw of the menu with the cached frame and with a frame,
+ * which has to be rendered again. The menu writes to a terminal, which
+ * discards the output. Unless paged is false, only a page of 17 options
+ * is rendered like on a terminal of 24 rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int options;
+
+    @Param({"true", "false"})
+    public boolean paged;
+
+    private BenchMenu menu;
+
+    @Setup
+    public void setup() throws AlreadyBoundException {
+        TerminalIO io = TerminalIO.of(InputStream.nullInputStream(), OutputStream.nullOutputStream(), true);
+        menu = BenchMenu.withOptions(options, io);
+        menu.setPageSize(paged ? 0 : Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void cached() {
+        menu.render();
+        menu.out().flush();
+    }
+
+    @Benchmark
+    public void invalidated() {
+        menu.setTitle("Benchmark");
+        menu.render();
+        menu.out().flush();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.AlreadyBoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fuzzy search over the option names and the
+ * construction of its index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    final static int QUERIES = 64;
+
+    @Param({"10", "1000", "100000"})
+    public int options;
+
+    private BenchMenu menu;
+    private List<Option> list;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() throws AlreadyBoundException {
+        Random random = new Random(42);
+        queries = new String[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = "optn " + random.nextInt(options);
+        }
+
+        menu = BenchMenu.withOptions(options);
+        menu.search("", 1);
+        list = new ArrayList<>(menu.size());
+
+        for (int i = 0; i < menu.size(); i++) {
+            list.add(menu.get(i));
+        }
+    }
+
+    @Benchmark
+    public List<Option> search() {
+        return menu.search(queries[next++ & (QUERIES - 1)], AssmusMenu.SEARCH_RESULTS);
+    }
+
+    @Benchmark
+    public SearchIndex index() {
+        return new SearchIndex(list);
+    }
+}
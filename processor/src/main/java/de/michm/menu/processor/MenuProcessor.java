@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * The MenuProcessor generates for every class with methods annotated by
+ * {@code @MenuOption} or {@code @OnUnknownInput} a companion class named
+ * [binary class name]_MenuTable. It implements de.michm.menu.MenuTable,
+ * holds the option table and calls the annotated methods in a switch
+ * statement, so AssmusMenu needs neither a reflective scan nor
+ * Method.invoke for that class. A nested menu class annotated with
+ * {@code @MenuOption} is constructed by the table with the TerminalIO
+ * of its parent. The tables are registered as services in
+ * META-INF/services/de.michm.menu.MenuTable, where AssmusMenu looks
+ * them up with the ServiceLoader.
+ *
+ * The annotations are referenced by name, so the processor doesn't
+ * depend on the AssmusMenu artifact.
+ */
+@SupportedAnnotationTypes({
+        MenuProcessor.MENU_OPTION,
+        MenuProcessor.ON_UNKNOWN_INPUT
+})
+public class MenuProcessor extends AbstractProcessor {
+    final static String MENU_OPTION = "de.michm.menu.MenuOption";
+    final static String ON_UNKNOWN_INPUT = "de.michm.menu.OnUnknownInput";
+    final static String ASSMUS_MENU = "de.michm.menu.AssmusMenu";
+    final static String TERMINAL_IO = "de.michm.menu.TerminalIO";
+    final static String MENU_TABLE = "de.michm.menu.MenuTable";
+    final static String SERVICES = "META-INF/services/" + MENU_TABLE;
+    final static String SUFFIX = "_MenuTable";
+
+    final private Set<String> tables = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+        if (env.processingOver()) {
+            if (!tables.isEmpty()) {
+                writeServices();
+            }
+
+            return true;
+        }
+
+        Map<TypeElement, List<Element>> options = new LinkedHashMap<>();
+        Map<TypeElement, ExecutableElement> unknownInputs = new LinkedHashMap<>();
+
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+
+            for (Element element : env.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS && MENU_OPTION.equals(annotationName)) {
+                    TypeElement menu = (TypeElement) element;
+
+                    if (menu.getEnclosingElement() instanceof TypeElement && checkMenu(menu)
+                            && extendsMenu((TypeElement) menu.getEnclosingElement(), menu)) {
+                        options.computeIfAbsent((TypeElement) menu.getEnclosingElement(), key -> new ArrayList<>()).add(menu);
+                    } else if (!(menu.getEnclosingElement() instanceof TypeElement)) {
+                        error(menu, "Only a nested menu class can be annotated with @MenuOption.");
+                    }
+
+                    continue;
+                } else if (element.getKind() != ElementKind.METHOD) {
+                    continue;
+                }
+
+                ExecutableElement method = (ExecutableElement) element;
+                TypeElement type = (TypeElement) method.getEnclosingElement();
+
+                if (!check(method, type)) {
+                    continue;
+                }
+
+                if (MENU_OPTION.equals(annotationName)) {
+                    options.computeIfAbsent(type, key -> new ArrayList<>()).add(method);
+                } else if (unknownInputs.putIfAbsent(type, method) != null) {
+                    error(method, "Only one method with @OnUnknownInput annotation is possible.");
+                } else if (!method.getParameters().isEmpty()) {
+                    error(method, "A method annotated with @OnUnknownInput must not have parameters.");
+                }
+            }
+        }
+
+        Set<TypeElement> types = new LinkedHashSet<>(options.keySet());
+        types.addAll(unknownInputs.keySet());
+
+        for (TypeElement type : types) {
+            List<Element> methods = new ArrayList<>(options.getOrDefault(type, List.of()));
+            methods.sort(Comparator.comparingInt(method -> type.getEnclosedElements().indexOf(method)));
+
+            try {
+                write(type, methods, unknownInputs.get(type));
+            } catch (IOException e) {
+                error(type, "Unable to write " + type.getSimpleName() + SUFFIX + ": " + e.getMessage());
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the service file, which registers the generated tables. The
+     * entries of a former compilation are kept, so an incremental build
+     * doesn't lose the tables of the classes, which weren't compiled again.
+     * They are only kept, if their class is still present. A table is a
+     * top level class, so its binary name is its qualified name.
+     */
+    private void writeServices() {
+        Filer filer = processingEnv.getFiler();
+        Elements elements = processingEnv.getElementUtils();
+        Set<String> entries = new TreeSet<>(tables);
+
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    String entry = line.trim();
+
+                    if (!entry.isEmpty() && elements.getTypeElement(entry) != null) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // There is no service file of a former compilation.
+        }
+
+        try (PrintWriter w = new PrintWriter(filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES).openWriter())) {
+            for (String entry : entries) {
+                w.println(entry);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + SERVICES + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks if the generated table in the package of the type is able to call
+     * the method. Reports an error and returns false if it isn't.
+     *
+     * @param method <ExecutableElement>
+     * @param type <TypeElement>
+     * @return <boolean>
+     */
+    private boolean check(ExecutableElement method, TypeElement type) {
+        if (!extendsMenu(type, method)) {
+            return false;
+        }
+
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, "An annotated method must neither be private nor static.");
+            return false;
+        }
+
+        for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                error(method, "A menu class must not be private.");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the passed type extends AssmusMenu, so the generated table
+     * is able to cast the menu to it. Otherwise an error is reported on
+     * the annotated element and false is returned.
+     *
+     * @param type <TypeElement>
+     * @param annotated <Element>
+     * @return <boolean>
+     */
+    private boolean extendsMenu(TypeElement type, Element annotated) {
+        Types types = processingEnv.getTypeUtils();
+        TypeElement menu = processingEnv.getElementUtils().getTypeElement(ASSMUS_MENU);
+
+        if (menu == null) {
+            error(annotated, ASSMUS_MENU + " isn't on the class path.");
+            return false;
+        } else if (!types.isSubtype(types.erasure(type.asType()), types.erasure(menu.asType()))) {
+            error(annotated, type.getSimpleName() + " has to extend " + ASSMUS_MENU + ".");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the generated table of the enclosing type is able to construct
+     * the passed nested menu class with a TerminalIO. Reports an error and
+     * returns false if it isn't.
+     *
+     * @param menu <TypeElement>
+     * @return <boolean>
+     */
+    private boolean checkMenu(TypeElement menu) {
+        if (!extendsMenu(menu, menu)) {
+            return false;
+        }
+
+        for (Element enclosing = menu; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                error(menu, "A menu class must not be private.");
+                return false;
+            }
+        }
+
+        Types types = processingEnv.getTypeUtils();
+
+        for (Element member : menu.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.CONSTRUCTOR || member.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+
+            List<? extends VariableElement> parameters = ((ExecutableElement) member).getParameters();
+
+            if (parameters.size() == 1 && types.erasure(parameters.get(0).asType()).toString().equals(TERMINAL_IO)) {
+                return true;
+            }
+        }
+
+        error(menu, menu.getSimpleName() + " needs a constructor with a " + TERMINAL_IO + " parameter.");
+        return false;
+    }
+
+    /**
+     * Writes the source file of the MenuTable for the passed type.
+     *
+     * @param type <TypeElement>
+     * @param methods <List<Element>>
+     * @param unknownInput <ExecutableElement>
+     */
+    private void write(TypeElement type, List<Element> methods, ExecutableElement unknownInput) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = binaryName.substring(binaryName.lastIndexOf('.') + 1) + SUFFIX;
+        String typeName = types.erasure(type.asType()).toString();
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        tables.add(qualifiedName);
+
+        try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                w.printf("package %s;%n%n", packageName);
+            }
+
+            w.printf("// Generated by %s%n", MenuProcessor.class.getName());
+            // The menu class is used as raw type, which is unchecked if it is generic.
+            w.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            w.printf("public final class %s implements de.michm.menu.MenuTable {%n", simpleName);
+
+            w.println("    private static final String[] NAMES = {");
+            for (Element method : methods) {
+                w.printf("            %s,%n", elements.getConstantExpression(value(method, "name")));
+            }
+            w.println("    };");
+
+            w.println("    private static final String[] PATTERNS = {");
+            for (Element method : methods) {
+                w.printf("            %s,%n", elements.getConstantExpression(value(method, "pattern")));
+            }
+            w.println("    };");
+
+            w.println("    private static final boolean[] ASYNC = {");
+            for (Element method : methods) {
+                w.printf("            %s,%n", value(method, "async"));
+            }
+            w.println("    };");
+
+            w.println("    private static final Class<?>[][] PARAMETER_TYPES = {");
+            for (Element method : methods) {
+                StringJoiner params = new StringJoiner(", ", "{", "}");
+
+                for (VariableElement parameter : parameters(method)) {
+                    params.add(types.erasure(parameter.asType()) + ".class");
+                }
+
+                w.printf("            %s,%n", params);
+            }
+            w.println("    };");
+
+            w.println("    private static final Class<?>[] RETURN_TYPES = {");
+            for (Element method : methods) {
+                TypeMirror returnType = method instanceof ExecutableElement
+                        ? ((ExecutableElement) method).getReturnType()
+                        : method.asType();
+                w.printf("            %s.class,%n", types.erasure(returnType));
+            }
+            w.println("    };");
+            w.println();
+
+            w.println("    @Override");
+            w.println("    public int size() {");
+            w.println("        return NAMES.length;");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public String name(int index) {");
+            w.println("        return NAMES[index];");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public String pattern(int index) {");
+            w.println("        return PATTERNS[index];");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public Class<?>[] parameterTypes(int index) {");
+            w.println("        return PARAMETER_TYPES[index].clone();");
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public Class<?> returnType(int index) {");
+            w.println("        return RETURN_TYPES[index];");
+            w.println("    }");
+            w.println();
+
+            w.println("    @Override");
+            w.println("    public boolean async(int index) {");
+            w.println("        return ASYNC[index];");
+            w.println("    }");
+            w.println();
+
+            w.println("    @Override");
+            w.println("    public Object invoke(de.michm.menu.AssmusMenu menu, int index, Object[] args) throws Exception {");
+            w.printf("        %s target = (%s) menu;%n%n", typeName, typeName);
+            w.println("        switch (index) {");
+            for (int i = 0; i < methods.size(); i++) {
+                if (!(methods.get(i) instanceof ExecutableElement)) {
+                    TypeElement menu = (TypeElement) methods.get(i);
+                    String constructor = menu.getModifiers().contains(Modifier.STATIC)
+                            ? "new " + types.erasure(menu.asType())
+                            : "target.new " + menu.getSimpleName();
+
+                    w.printf("            case %d:%n", i);
+                    w.printf("                return %s(menu.io());%n", constructor);
+                    continue;
+                }
+
+                ExecutableElement method = (ExecutableElement) methods.get(i);
+                StringJoiner args = new StringJoiner(", ");
+
+                for (int j = 0; j < method.getParameters().size(); j++) {
+                    String parameterType = types.erasure(method.getParameters().get(j).asType()).toString();
+
+                    // A cast to Object would be redundant, e.g. for a type variable.
+                    args.add(parameterType.equals("java.lang.Object") ? "args[" + j + "]" : "(" + parameterType + ") args[" + j + "]");
+                }
+
+                String call = "target." + method.getSimpleName() + "(" + args + ")";
+
+                if (method.getReturnType().getKind() == TypeKind.VOID) {
+                    w.printf("            case %d:%n", i);
+                    w.printf("                %s;%n", call);
+                    w.println("                return null;");
+                } else {
+                    w.printf("            case %d:%n", i);
+                    w.printf("                return %s;%n", call);
+                }
+            }
+            w.println("            default:");
+            w.println("                throw new IndexOutOfBoundsException(index);");
+            w.println("        }");
+            w.println("    }");
+            w.println();
+
+            w.println("    @Override");
+            w.println("    public boolean hasOnUnknownInput() {");
+            w.printf("        return %s;%n", unknownInput != null);
+            w.println("    }");
+            w.println();
+            w.println("    @Override");
+            w.println("    public void onUnknownInput(de.michm.menu.AssmusMenu menu) throws Exception {");
+            if (unknownInput != null) {
+                w.printf("        ((%s) menu).%s();%n", typeName, unknownInput.getSimpleName());
+            } else {
+                // Like a scanned menu without handler, unknown input is ignored.
+                w.println("        // No method is annotated with @OnUnknownInput.");
+            }
+            w.println("    }");
+            w.println("}");
+        }
+    }
+
+    /**
+     * Returns the parameters of an annotated method. A nested menu
+     * class has no parameters.
+     *
+     * @param method <Element>
+     * @return <List<? extends VariableElement>>
+     */
+    private static List<? extends VariableElement> parameters(Element method) {
+        return method instanceof ExecutableElement ? ((ExecutableElement) method).getParameters() : List.of();
+    }
+
+    /**
+     * Returns the value of the passed element of the @MenuOption annotation
+     * of the method. Elements, which are not set, return their default.
+     *
+     * @param method <Element>
+     * @param element <String>
+     * @return <Object>
+     */
+    private Object value(Element method, String element) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+
+            if (!annotation.getQualifiedName().contentEquals(MENU_OPTION)) {
+                continue;
+            }
+
+            Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                    processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals(element)) {
+                    return entry.getValue().getValue();
+                }
+            }
+        }
+
+        throw new IllegalStateException("@MenuOption of " + method + " has no " + element);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
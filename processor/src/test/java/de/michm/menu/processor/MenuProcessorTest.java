@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu.processor;
+
+import de.michm.menu.MenuTable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import javax.tools.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuProcessorTest {
+    final static String APP = String.join("\n",
+            "package demo;",
+            "import de.michm.menu.*;",
+            "import java.rmi.AlreadyBoundException;",
+            "public class App<T> extends AssmusMenu {",
+            "    public App(TerminalIO io) throws AlreadyBoundException { super(\"App\", io); }",
+            "    @MenuOption(name = \"Add\", pattern = \"a\")",
+            "    int add(int a, int b) { return a + b; }",
+            "    @MenuOption(name = \"Keep\", pattern = \"k\")",
+            "    void keep(T value) { }",
+            "    @MenuOption(name = \"Settings\", pattern = \"s\")",
+            "    public static class Settings extends AssmusMenu {",
+            "        public Settings(TerminalIO io) throws AlreadyBoundException { super(\"Settings\", io); }",
+            "        @MenuOption(name = \"Colors\", pattern = \"c\")",
+            "        void colors() { }",
+            "    }",
+            "}");
+
+    @Test
+    void tablesAreGeneratedAndRegistered() throws Exception {
+        Path dir = Files.createTempDirectory("processor");
+        Compilation compilation = compile(dir, "demo/App.java", APP);
+
+        assertTrue(compilation.success, compilation.toString());
+        assertTrue(compilation.warnings.isEmpty(), compilation.toString());
+        assertEquals(List.of("demo.App$Settings_MenuTable", "demo.App_MenuTable"), services(dir));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()},
+                MenuTable.class.getClassLoader())) {
+            List<String> tables = new ArrayList<>();
+
+            for (MenuTable table : ServiceLoader.load(MenuTable.class, loader)) {
+                tables.add(table.getClass().getName());
+
+                if (table.getClass().getName().equals("demo.App_MenuTable")) {
+                    int add = index(table, "a");
+                    int settings = index(table, "s");
+
+                    assertEquals(3, table.size());
+                    assertEquals("Add", table.name(add));
+                    assertEquals(int.class, table.parameterTypes(add)[0]);
+                    assertEquals(int.class, table.returnType(add));
+                    assertEquals("demo.App$Settings", table.returnType(settings).getName());
+                    assertFalse(table.hasOnUnknownInput());
+                    // Like a scanned menu without handler, unknown input is ignored.
+                    table.onUnknownInput(null);
+                }
+            }
+
+            assertEquals(2, tables.size(), tables.toString());
+        }
+    }
+
+    @Test
+    void servicesOfFormerCompilationsAreKept() throws Exception {
+        Path dir = Files.createTempDirectory("processor");
+        assertTrue(compile(dir, "demo/App.java", APP).success);
+
+        Compilation compilation = compile(dir, "demo/Other.java", String.join("\n",
+                "package demo;",
+                "import de.michm.menu.*;",
+                "import java.rmi.AlreadyBoundException;",
+                "class Other extends AssmusMenu {",
+                "    Other(TerminalIO io) throws AlreadyBoundException { super(\"Other\", io); }",
+                "    @MenuOption(name = \"X\", pattern = \"x\")",
+                "    void x() { }",
+                "}"));
+
+        assertTrue(compilation.success, compilation.toString());
+        assertEquals(List.of("demo.App$Settings_MenuTable", "demo.App_MenuTable", "demo.Other_MenuTable"), services(dir));
+    }
+
+    @Test
+    void optionsOutsideOfMenusAreReported() throws Exception {
+        Path dir = Files.createTempDirectory("processor");
+        Compilation compilation = compile(dir, "demo/Plain.java", String.join("\n",
+                "package demo;",
+                "import de.michm.menu.*;",
+                "import java.rmi.AlreadyBoundException;",
+                "public class Plain {",
+                "    @MenuOption(name = \"X\", pattern = \"x\")",
+                "    void x() { }",
+                "    @MenuOption(name = \"Sub\", pattern = \"s\")",
+                "    public static class Sub extends AssmusMenu {",
+                "        public Sub(TerminalIO io) throws AlreadyBoundException { super(\"Sub\", io); }",
+                "    }",
+                "}"));
+
+        assertFalse(compilation.success);
+        assertEquals(2, compilation.errors.size(), compilation.toString());
+
+        for (Diagnostic<? extends JavaFileObject> error : compilation.errors) {
+            assertTrue(error.getMessage(null).contains("Plain has to extend de.michm.menu.AssmusMenu"), compilation.toString());
+            assertTrue(error.getSource().getName().endsWith("Plain.java"), compilation.toString());
+        }
+    }
+
+    /**
+     * Compiles the passed source with the MenuProcessor and the lint
+     * warnings into the classes directory of dir.
+     */
+    private static Compilation compile(Path dir, String name, String source) throws IOException {
+        Path file = dir.resolve("src").resolve(name);
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(file.getParent());
+        Files.createDirectories(classes);
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            // AssmusMenu.close() throws InterruptedException, which every menu class is warned of.
+            List<String> options = List.of("-Xlint:all,-try", "-d", classes.toString(),
+                    "-classpath", System.getProperty("java.class.path") + File.pathSeparator + classes);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null,
+                    files.getJavaFileObjects(file));
+            task.setProcessors(List.of(new MenuProcessor()));
+
+            Compilation compilation = new Compilation(task.call());
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    compilation.errors.add(diagnostic);
+                } else if (diagnostic.getKind() == Diagnostic.Kind.WARNING
+                        || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                    compilation.warnings.add(diagnostic);
+                }
+            }
+
+            return compilation;
+        }
+    }
+
+    private static int index(MenuTable table, String pattern) {
+        for (int i = 0; i < table.size(); i++) {
+            if (table.pattern(i).equals(pattern)) {
+                return i;
+            }
+        }
+
+        throw new AssertionError("No option " + pattern);
+    }
+
+    private static List<String> services(Path dir) throws IOException {
+        return Files.readAllLines(dir.resolve("classes").resolve(MenuProcessor.SERVICES));
+    }
+
+    static class Compilation {
+        final boolean success;
+        final List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        final List<Diagnostic<? extends JavaFileObject>> warnings = new ArrayList<>();
+
+        Compilation(boolean success) {
+            this.success = success;
+        }
+
+        @Override
+        public String toString() {
+            List<String> messages = new ArrayList<>();
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : errors) {
+                messages.add(diagnostic.toString());
+            }
+
+            for (Diagnostic<? extends JavaFileObject> diagnostic : warnings) {
+                messages.add(diagnostic.toString());
+            }
+
+            return String.join("\n", messages);
+        }
+    }
+}
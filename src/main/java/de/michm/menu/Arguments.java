@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The arguments typed after the pattern of a selection, e.g. "42" and
+ * "bob" of "a 42 bob". They are separated by whitespace, double quotes
+ * group words to one argument. An option method receives them by a
+ * parameter of this type.
+ *
+ * <code>
+ *     @MenuOption(name = "Add", pattern = "a")
+ *     void add(Arguments arguments) {
+ *         int amount = arguments.get(0, Integer.class);
+ *     }
+ * </code>
+ */
+public final class Arguments {
+    final static Arguments NONE = new Arguments(new String[0]);
+
+    final private String[] values;
+
+    private Arguments(String[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Splits the passed text into arguments. Throws an
+     * IllegalArgumentException if a quote isn't closed.
+     *
+     * @param text <String>
+     * @return <Arguments>
+     */
+    static Arguments parse(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean started = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '"') {
+                quoted = !quoted;
+                started = true;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                if (started) {
+                    values.add(value.toString());
+                    value.setLength(0);
+                    started = false;
+                }
+            } else {
+                value.append(c);
+                started = true;
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("The quote in \"" + text.trim() + "\" isn't closed.");
+        }
+
+        if (started) {
+            values.add(value.toString());
+        }
+
+        return values.isEmpty() ? NONE : new Arguments(values.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the count of arguments.
+     *
+     * @return <int>
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the argument at the passed index, or null
+     * if fewer arguments were typed.
+     *
+     * @param index <int>
+     * @return <String>
+     */
+    public String get(int index) {
+        return index >= 0 && index < values.length ? values[index] : null;
+    }
+
+    /**
+     * Returns the argument at the passed index converted to the passed type
+     * by its Converter, or null if fewer arguments were typed. A primitive
+     * type returns its wrapper. Throws an IllegalArgumentException if the
+     * argument can't be converted.
+     *
+     * @param index <int>
+     * @param type <Class<T>>
+     * @return <T>
+     */
+    public <T> T get(int index, Class<T> type) {
+        String value = get(index);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Converters.convert(type, value);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("For argument \"" + value + "\": not a valid " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Returns the arguments as unmodifiable list.
+     *
+     * @return <List<String>>
+     */
+    public List<String> asList() {
+        return List.of(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -17,12 +17,22 @@
 package de.michm.menu;
 
 import java.io.*;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.rmi.AlreadyBoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -57,312 +67,1962 @@ import org.jetbrains.annotations.NotNull;
  * </code>
  */
 public class AssmusMenu implements AutoCloseable {
-    final private String title;
-    final private ArrayList<Option> options;
-    final private Method onUnknownInput;
-    final private BufferedReader reader;
+    /**
+     * The prefix of an input, which searches the option names.
+     */
+    final static char SEARCH = '/';
+
+    /**
+     * The count of search results the user selects from.
+     */
+    final static int SEARCH_RESULTS = 10;
+
+    /**
+     * The inputs, which turn to the next and the previous page.
+     */
+    final static String NEXT_PAGE = "+";
+    final static String PREVIOUS_PAGE = "-";
+
+    /**
+     * The inputs, which leave a sub-menu to its parent and to the top menu.
+     */
+    final static String BACK = "..";
+    final static String HOME = "~";
+
+    /**
+     * The rows assumed if the size of the terminal is unknown.
+     */
+    final static int DEFAULT_ROWS = 24;
+
+    /**
+     * The rows of a frame, which are no options: the title, the
+     * page line and the prompt.
+     */
+    final static int RESERVED_ROWS = 7;
+
+    /**
+     * The keys handled by the raw input: end of transmission (Ctrl-D),
+     * escape, which starts the sequence of an arrow key, and delete.
+     */
+    final static int EOT = 4;
+    final static int ESC = 27;
+    final static int DEL = 127;
+
+    /**
+     * The ways run() returns.
+     */
+    private enum Exit {
+        QUIT,
+        BACK,
+        HOME
+    }
+
+    /**
+     * The menu, which is running on the current thread.
+     */
+    final private static ThreadLocal<AssmusMenu> RUNNING = new ThreadLocal<>();
+
+    private String title;
+    private List<Option> options;
+    private Map<String, Option> index;
+    private PatternTrie trie;
+    private SearchIndex search;
+    private OptionProvider provider;
+    private boolean prefixMatching = true;
+    final private MethodHandle onUnknownInput;
+    final private TerminalIO io;
+    final private PrintStream out;
+    final private Terminal terminal;
+    private BufferedReader reader;
+    private boolean interactive;
+    private boolean headless;
+    private ScriptReport report;
+    private SessionRecorder recorder;
+    private MenuMetrics metrics = new MenuMetrics();
+    private BufferedReader unrecorded;
+    final private List<Job> jobs = new CopyOnWriteArrayList<>();
+    final private List<Job> finishedJobs = new ArrayList<>();
+    final private Queue<Job> completedJobs = new ConcurrentLinkedQueue<>();
+    private ExecutorService executor;
+    private int jobCount;
+    private byte[] frame;
+    private AssmusMenu parent;
+    private Exit exit;
+    private Exception failure;
+    final private Map<Option, AssmusMenu> children = new HashMap<>();
+    private int page;
+    private int pageSize;
+    private int rows = -1;
+    private boolean rawInput;
+    private boolean raw;
+    private int highlight = -1;
+    private Duration idleTimeout;
+    private Duration refreshInterval;
+    private InputMonitor monitor;
+    private long lastInput;
+    private char[] line = new char[64];
+
+    /**
+     * The constructor needs a title as String
+     *
+     * @param title <String>
+     */
+    public AssmusMenu(String title) throws AlreadyBoundException {
+        this(title, TerminalIO.system());
+    }
+
+    /**
+     * Creates a menu, which is connected to its user by the passed
+     * TerminalIO instead of stdin and stdout.
+     *
+     * @param title <String>
+     * @param io <TerminalIO>
+     */
+    public AssmusMenu(String title, @NotNull TerminalIO io) throws AlreadyBoundException {
+        MenuMetadata metadata = MenuMetadata.of(this.getClass());
+
+        this.title = title;
+        this.options = metadata.options();
+        this.index = metadata.index();
+        this.trie = metadata.trie();
+        this.onUnknownInput = metadata.onUnknownInput();
+        this.io = io;
+        this.out = io.out();
+        this.terminal = new Terminal(out, io.isAnsi(), io.charset());
+        this.reader = io.reader();
+        this.interactive = io.isInteractive();
+    }
+
+    /**
+     * Returns the TerminalIO the menu is connected to. A sub-menu returned
+     * by an option has to be created with it.
+     *
+     * <code>
+     *     @MenuOption(name = "Settings", pattern = "s")
+     *     AssmusMenu settings() throws AlreadyBoundException {
+     *         return new Settings(io());
+     *     }
+     * </code>
+     *
+     * @return <TerminalIO>
+     */
+    public TerminalIO io() {
+        return io;
+    }
+
+    /**
+     * Returns the stream the menu writes to. Option methods should
+     * use it instead of System.out, so their output reaches the user
+     * of the menu also if it isn't connected to stdout.
+     *
+     * @return <PrintStream>
+     */
+    protected PrintStream out() {
+        return out;
+    }
+
+    /**
+     * Returns the reader of the selections and answers.
+     *
+     * @return <BufferedReader>
+     */
+    BufferedReader reader() {
+        return reader;
+    }
+
+    /**
+     * Returns true if the menu is rendered and prompts are printed. By default,
+     * this is the case if stdin and stdout are attached to a terminal.
+     *
+     * @return <boolean>
+     */
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * Enables or disables the interactive mode. In the non-interactive mode
+     * neither the menu is rendered nor the screen is cleared nor any prompt
+     * is printed, so the selections and answers can be piped into stdin.
+     *
+     * @param interactive <boolean>
+     */
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+    }
+
+    /**
+     * Returns true if the selection is read key by key.
+     *
+     * @return <boolean>
+     */
+    public boolean isRawInput() {
+        return rawInput;
+    }
+
+    /**
+     * Enables or disables the raw input. If it is enabled, the terminal is
+     * switched into the raw mode once, when the menu runs interactively, and
+     * switched back on close(). An option is selected as soon as the typed
+     * keys are its pattern, or the only prefix of one, and no other pattern
+     * starts with them. The arrow keys up and down highlight an option, which
+     * is selected by Enter, left and right turn the pages. If the terminal
+     * doesn't support the raw mode, e.g. on Windows or over a socket, the
+     * selection is read line by line.
+     *
+     * @param rawInput <boolean>
+     */
+    public void setRawInput(boolean rawInput) {
+        this.rawInput = rawInput;
+    }
+
+    /**
+     * Returns the time without input after which run() returns, or null.
+     *
+     * @return <Duration>
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time without input after which run() returns, e.g. to end
+     * abandoned sessions of a MenuServer. Passing null waits forever.
+     *
+     * @param idleTimeout <Duration>
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = positive(idleTimeout);
+    }
+
+    /**
+     * Returns the interval the menu is rendered again in while
+     * it waits for a selection, or null.
+     *
+     * @return <Duration>
+     */
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Sets the interval the menu is refreshed and rendered again in while it
+     * waits for a selection, so live data of a provider stays current. Passing
+     * null renders only after a selection or when an async option finished.
+     *
+     * @param refreshInterval <Duration>
+     */
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = positive(refreshInterval);
+    }
+
+    private static Duration positive(Duration duration) {
+        if (duration != null && (duration.isNegative() || duration.isZero())) {
+            throw new IllegalArgumentException("The duration has to be positive: " + duration);
+        }
+
+        return duration;
+    }
+
+    /**
+     * Sets the stream the result of each step is written to as line
+     * of JSON. Passing null disables the report.
+     *
+     * @param report <PrintStream>
+     */
+    public void setReport(PrintStream report) {
+        this.report = report != null ? new ScriptReport(report) : null;
+    }
+
+    /**
+     * Sets the SessionRecorder, which journals every line of input and the
+     * outcome of every step. Passing null stops the recording. The recorder
+     * isn't closed by the menu.
+     *
+     * <code>
+     *     try (SessionRecorder recorder = new SessionRecorder(Path.of("session.amj"))) {
+     *         app.setRecorder(recorder);
+     *         app.run();
+     *     }
+     * </code>
+     *
+     * @param recorder <SessionRecorder>
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        if (this.recorder != null) {
+            reader = unrecorded;
+        }
+
+        this.recorder = recorder;
+
+        if (recorder != null) {
+            unrecorded = reader;
+            reader = record(reader);
+        }
+    }
+
+    /**
+     * Wraps the passed reader, so the consumed lines are recorded.
+     *
+     * @param reader <Reader>
+     * @return <BufferedReader>
+     */
+    private BufferedReader record(Reader reader) {
+        return new BufferedReader(new RecordingReader(reader, recorder), 1);
+    }
+
+    /**
+     * Returns true if an input, which is no pattern, selects the only
+     * option whose pattern starts with it.
+     *
+     * @return <boolean>
+     */
+    public boolean isPrefixMatching() {
+        return prefixMatching;
+    }
+
+    /**
+     * Enables or disables the selection of options by an unique prefix of
+     * their pattern. It is enabled by default.
+     *
+     * @param prefixMatching <boolean>
+     */
+    public void setPrefixMatching(boolean prefixMatching) {
+        this.prefixMatching = prefixMatching;
+    }
+
+    /**
+     * Returns the count of options rendered per page. By default, it is
+     * derived from the height of the terminal.
+     *
+     * @return <int>
+     */
+    public int getPageSize() {
+        if (pageSize > 0) {
+            return pageSize;
+        }
+
+        int rows = io.rows();
+        return Math.max(1, (rows > 0 ? rows : DEFAULT_ROWS) - RESERVED_ROWS);
+    }
+
+    /**
+     * Sets the count of options rendered per page. Passing 0 derives
+     * it from the height of the terminal.
+     *
+     * @param pageSize <int>
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(0, pageSize);
+        setPage(page);
+        frame = null;
+    }
+
+    /**
+     * Returns the 0-based index of the rendered page.
+     *
+     * @return <int>
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * Turns to the page of the passed 0-based index. It is
+     * limited to the first and the last page.
+     *
+     * @param page <int>
+     */
+    public void setPage(int page) {
+        page = Math.max(0, Math.min(page, getPageCount() - 1));
+
+        if (this.page != page) {
+            this.page = page;
+            highlight = -1;
+            frame = null;
+        }
+    }
+
+    /**
+     * Returns the count of pages.
+     *
+     * @return <int>
+     */
+    public int getPageCount() {
+        int entries = entries();
+        return entries == 0 ? 1 : (entries - 1) / getPageSize() + 1;
+    }
+
+    /**
+     * Returns the count of options and entries of the provider.
+     *
+     * @return <int>
+     */
+    private int entries() {
+        return options.size() + (provider != null ? provider.size() : 0);
+    }
+
+    /**
+     * Returns the provider of the entries listed after the options or null.
+     *
+     * @return <OptionProvider>
+     */
+    public OptionProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Sets the provider of the entries listed after the options. Only the
+     * entries of the rendered page are requested from it and an entry is
+     * selected by its pattern. Abbreviations and the search cover the
+     * options only. Passing null removes the provider.
+     *
+     * @param provider <OptionProvider>
+     */
+    public void setProvider(OptionProvider provider) {
+        this.provider = provider;
+        refresh();
+    }
+
+    /**
+     * Renders the menu again on the next redraw, e.g. after
+     * the entries of the provider have changed.
+     */
+    public void refresh() {
+        frame = null;
+        setPage(page);
+    }
+
+    /**
+     * Returns the metrics of the options, the redraws and the waits for
+     * a selection of this menu and its sub-menus.
+     *
+     * @return <MenuMetrics>
+     */
+    public MenuMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds an option, which prints the statistics of the metrics.
+     *
+     * @param pattern <String>
+     */
+    public void addStatsOption(@NotNull String pattern) {
+        try {
+            add(new Option("Statistics", pattern, AssmusMenu.class.getDeclaredMethod("printStats")));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Prints the count of invocations, the errors and the latency of the
+     * options, the most frequent first, and the timings of the redraws and
+     * the waits for a selection. Waits for return, if the menu is interactive.
+     */
+    public void printStats() {
+        MenuMetrics.Snapshot snapshot = metrics.snapshot();
+        StringBuilder text = new StringBuilder(String.format("%n   %-24s %8s %8s %10s %10s %10s %10s%n",
+                "Statistics", "Count", "Errors", "Mean ms", "p50 ms", "p99 ms", "Max ms"));
+        List<MenuMetrics.Stats> rows = new ArrayList<>(snapshot.getOptions());
+
+        rows.add(snapshot.getRender());
+        rows.add(snapshot.getReadWait());
+
+        for (MenuMetrics.Stats stats : rows) {
+            String name = stats.getPattern() != null ? "(" + stats.getPattern() + ") " + stats.getName() : stats.getName();
+
+            text.append(String.format("   %-24.24s %8d %8d %10.3f %10.3f %10.3f %10.3f%n", name,
+                    stats.getCount(), stats.getErrors(), stats.getMeanNanos() / 1e6,
+                    stats.getPercentileNanos(0.5) / 1e6, stats.getPercentileNanos(0.99) / 1e6,
+                    stats.getMaxNanos() / 1e6));
+        }
+
+        out.print(text);
+
+        if (interactive) {
+            out.println("\n\tHit return to continue...");
+            out.flush();
+            read(String.class);
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the size of the underlying List of options.
+     *
+     * @return List of options size <int>
+     */
+    public int size() {
+        return options.size();
+    }
+
+    /**
+     * Replaces the options and the index shared with the other instances
+     * of the class by own copies before they are modified the first time.
+     * The shared trie is dropped and rebuilt on demand.
+     */
+    private void detach() {
+        frame = null;
+
+        if (!(options instanceof ArrayList)) {
+            options = new ArrayList<>(options);
+            index = new HashMap<>(index);
+            trie = null;
+        }
+    }
+
+    /**
+     * Returns the option or the entry of the provider, whose pattern is equal
+     * to the input, or the only option whose pattern starts with it, or null.
+     * The patterns starting with an ambiguous input are added to the passed list.
+     *
+     * @param input <String>
+     * @param candidates <List<String>>
+     * @return <Option>
+     */
+    private Option resolve(String input, List<String> candidates) {
+        Option option = index.get(input);
+
+        if (option == null && provider != null) {
+            int entry = provider.find(input);
+            option = entry >= 0 ? new Option(provider, entry) : null;
+        }
+
+        if (option != null || !prefixMatching || input.isEmpty()) {
+            return option;
+        }
+
+        return trie().resolve(input, candidates);
+    }
+
+    /**
+     * Returns the trie of the patterns, which is built on demand.
+     *
+     * @return <PatternTrie>
+     */
+    private PatternTrie trie() {
+        if (trie == null) {
+            trie = new PatternTrie(options);
+        }
+
+        return trie;
+    }
+
+    /**
+     * Adds an Option object to the list. Throws an IllegalArgumentException
+     * if its pattern is already bound to another Option.
+     *
+     * @param option <Option>
+     */
+    public void add(Option option) {
+        Option bound = index.get(option.getPattern());
+
+        if (bound != null) {
+            throw new IllegalArgumentException(MenuMetadata.alreadyBound(option, bound));
+        }
+
+        detach();
+        index.put(option.getPattern(), option);
+        options.add(option);
+
+        if (trie != null) {
+            trie.add(option);
+        }
+
+        if (search != null) {
+            search.add(option);
+        }
+    }
+
+    /**
+     * Removes an Option object from the list. Returns
+     * true on success and false on a failure.
+     *
+     * @param option <Option>
+     * @return <boolean>
+     */
+    public boolean remove(Option option) {
+        if (!options.contains(option)) {
+            // Nothing changes, so the shared options are kept.
+            return false;
+        }
+
+        detach();
+        options.remove(option);
+        index.remove(option.getPattern(), option);
+
+        if (trie != null) {
+            trie.remove(option);
+        }
+
+        if (search != null) {
+            search.remove(option);
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the Option object on the position specified
+     * by the passed index from the list. Returns true on
+     * success and false on a failure.
+     *
+     * @param index <int>
+     * @return <boolean>
+     */
+    public Option remove(int index) {
+        detach();
+        Option option = options.remove(index);
+        this.index.remove(option.getPattern(), option);
+
+        if (trie != null) {
+            trie.remove(option);
+        }
+
+        if (search != null) {
+            search.remove(option);
+        }
+
+        return option;
+    }
+
+    /**
+     * Returns the Option object at the position of the passed
+     * index from the list.
+     *
+     * @param index <int>
+     * @return <Option>
+     */
+    public Option get(int index) {
+        return options.get(index);
+    }
+
+    /**
+     * Returns up to limit options, whose names are most similar to the
+     * query, the best match first. The index of the names is built on
+     * the first search and kept up to date by add and remove. Throws an
+     * IllegalArgumentException if the limit is negative. Like add and
+     * remove, it must not be called concurrently on the same menu.
+     *
+     * @param query <String>
+     * @param limit <int>
+     * @return <List<Option>>
+     */
+    public List<Option> search(@NotNull String query, int limit) {
+        if (search == null) {
+            search = new SearchIndex(options);
+        }
+
+        return search.search(query, limit);
+    }
+
+    /**
+     * Clears the output of the menu running on the current thread,
+     * or stdout, by writing escape sequences. Does nothing if the
+     * output is not a terminal or the menu is not interactive.
+     *
+     * The checked exceptions are kept for compatibility with
+     * callers written against the former process based version.
+     */
+    public static void clear() throws IOException, InterruptedException {
+        AssmusMenu menu = RUNNING.get();
+
+        if (menu == null) {
+            Terminal.STDOUT.clear();
+        } else if (menu.interactive && !menu.headless) {
+            menu.terminal.clear();
+        }
+    }
+
+    /**
+     * Returns the title.
+     *
+     * @return <String>
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Sets the title, which is shown on the next redraw.
+     *
+     * @param title <String>
+     */
+    public void setTitle(String title) {
+        this.title = title;
+        this.frame = null;
+    }
+
+    /**
+     * Renders the title, its underline and the options into the frame buffer.
+     * Creates an underline with the double length of title property.
+     *
+     * @return <byte[]>
+     */
+    private byte[] createFrame() {
+        StringBuilder text = new StringBuilder();
+
+        String path = title;
+
+        for (AssmusMenu menu = parent; menu != null; menu = menu.parent) {
+            path = menu.title + " > " + path;
+        }
+
+        text.append('\n').append(path).append('\n')
+                .append("=".repeat(Math.max(0, path.length() * 2))).append('\n');
+
+        int size = getPageSize();
+        int pages = getPageCount();
+        page = Math.min(page, pages - 1);
+
+        int end = (int) Math.min(entries(), (long) (page + 1) * size);
+
+        // Only the visible page is rendered, so the frame doesn't grow with the options.
+        for (int i = page * size; i < end; i++) {
+            text.append(i == highlight ? " > " : "   ");
+
+            if (i < options.size()) {
+                text.append("(").append(options.get(i).getPattern()).append(") ")
+                        .append(options.get(i).getName()).append('\n');
+            } else {
+                text.append("(").append(provider.pattern(i - options.size())).append(") ")
+                        .append(provider.name(i - options.size())).append('\n');
+            }
+        }
+
+        if (pages > 1) {
+            text.append(String.format("%n   Page %d/%d - (%s) next, (%s) previous%n",
+                    page + 1, pages, NEXT_PAGE, PREVIOUS_PAGE));
+        }
+
+        if (parent != null) {
+            text.append(String.format("%n   (%s) back, (%s) home%n", BACK, HOME));
+        }
+
+        byte[] content = text.toString().getBytes(terminal.charset());
+
+        if (!terminal.isAnsi()) {
+            return content;
+        }
+
+        byte[] frame = Arrays.copyOf(Terminal.CLEAR, Terminal.CLEAR.length + content.length);
+        System.arraycopy(content, 0, frame, Terminal.CLEAR.length, content.length);
+        return frame;
+    }
+
+    /**
+     * Clears the output and prints the resulting menu with a single write. The frame
+     * is rendered only if the title or the options have changed since the last
+     * redraw. The output is flushed with the following prompt.
+     */
+    void render() {
+        MenuEvents.Render event = new MenuEvents.Render();
+        byte[] frame = this.frame;
+        boolean cached = frame != null;
+        long bytes = 0;
+
+        event.begin();
+
+        if (frame == null) {
+            frame = createFrame();
+            this.frame = frame;
+        }
+
+        if (terminal.isAnsi()) {
+            // The frame starts with the escape sequences, which clear the screen.
+            MenuEvents.Clear clear = new MenuEvents.Clear();
+
+            if (clear.shouldCommit()) {
+                clear.bytes = Terminal.CLEAR.length;
+                clear.commit();
+            }
+        }
+
+        out.write(frame, 0, frame.length);
+        bytes += frame.length;
+
+        if (!jobs.isEmpty() || !finishedJobs.isEmpty()) {
+            byte[] text = renderJobs().getBytes(terminal.charset());
+
+            out.write(text, 0, text.length);
+            bytes += text.length;
+        }
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.menu = title;
+            event.cached = cached;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Renders the list of running Jobs and of the Jobs,
+     * which have finished since the last redraw.
+     *
+     * @return <String>
+     */
+    private String renderJobs() {
+        StringBuilder text = new StringBuilder("\n   Jobs\n");
+
+        for (List<Job> list : List.of(finishedJobs, jobs)) {
+            for (Job job : list) {
+                text.append(String.format("   [%d] %s - %s (%.1fs)%n", job.getId(), job.getName(),
+                        job.getStatus().name().toLowerCase(), job.getDuration().toMillis() / 1000.0));
+            }
+        }
+
+        finishedJobs.clear();
+        return text.toString();
+    }
+
+    /**
+     * Returns the Jobs, which are running or whose result
+     * has not been delivered to the menu loop yet.
+     *
+     * @return <List<Job>>
+     */
+    public List<Job> getJobs() {
+        return List.copyOf(jobs);
+    }
+
+    /**
+     * Starts the method of an async option as Job in the background.
+     *
+     * @param option <Option>
+     * @param args <Object[]>
+     * @return <Job>
+     */
+    private Job start(Option option, Object[] args) {
+        Job job = new Job(++jobCount, option.getName(), completedJobs);
+
+        if (executor == null) {
+            executor = Threads.newExecutor("AssmusMenu-job");
+        }
+
+        jobs.add(job);
+        MenuMetrics metrics = this.metrics;
+
+        executor.execute(() -> {
+            long start = System.nanoTime();
+
+            try {
+                job.complete(option.invoke(this, args));
+                metrics.option(option).record(System.nanoTime() - start, false);
+            } catch (InvocationTargetException e) {
+                job.fail(e.getCause());
+                metrics.option(option).record(System.nanoTime() - start, true);
+            } finally {
+                job.deliver();
+
+                InputMonitor monitor = root().monitor;
+
+                if (monitor != null) {
+                    monitor.wakeup();
+                }
+            }
+        });
+
+        return job;
+    }
+
+    /**
+     * Delivers the results of the finished Jobs to the menu loop. Exceptions
+     * are printed and a Job returning true ends the loop like a synchronous
+     * option. Returns the new value of the run variable.
+     *
+     * @return <boolean>
+     */
+    private boolean deliverJobs() {
+        boolean run = true;
+        Job job;
+
+        while ((job = completedJobs.poll()) != null) {
+            jobs.remove(job);
+
+            if (interactive && !headless) {
+                finishedJobs.add(job);
+            }
+
+            if (job.getStatus() == Job.Status.FAILED) {
+                printException(new ExecutionException(
+                        "Job [" + job.getId() + "] " + job.getName() + " failed", job.getError()
+                ));
+            } else if (Boolean.TRUE.equals(job.getResult())) {
+                run = false;
+            }
+        }
+
+        return run;
+    }
+
+    /**
+     * The run method is called from your `public static void main()` method.
+     *
+     * <code>
+     *     class Main {
+     *           static void public main(String[] args) {
+     *               App app = new App("MY COOL CLI APP");
+     *               app.run();
+     *           }
+     *       }
+     * </code>
+     *
+     * If the return type of the invoked method is boolean, the run variable will
+     * be set to the return value.
+     */
+    public void run() {
+        AssmusMenu previous = RUNNING.get();
+        boolean run = true;
+
+        exit = Exit.QUIT;
+        failure = null;
+        RUNNING.set(this);
+
+        try {
+            if (recorder != null && parent == null) {
+                recorder.run(interactive);
+            }
+
+            if (rawInput && !raw && parent == null && interactive && !headless) {
+                raw = io.setRaw(true);
+            }
+
+            lastInput = System.nanoTime();
+
+            while (run && (run = deliverJobs())) {
+                if (raw && pageSize == 0 && !headless) {
+                    // There is no signal of a resize, so it is polled once per selection.
+                    int rows = io.refreshRows();
+
+                    if (rows != this.rows) {
+                        this.rows = rows;
+                        setPage(page);
+                        frame = null;
+                    }
+                }
+
+                if (interactive && !headless) {
+                    long rendering = System.nanoTime();
+                    render();
+                    metrics.render().record(System.nanoTime() - rendering, false);
+                }
+
+                long waiting = System.nanoTime();
+                prompt("\n > ");
+
+                if (!awaitInput()) {
+                    if (idleTimeout != null && System.nanoTime() - lastInput >= idleTimeout.toNanos()) {
+                        prompt("%nThe session timed out.%n");
+                        break;
+                    }
+
+                    // Refreshed or a job has finished
+                    refresh();
+                    continue;
+                }
+
+                String input = raw && interactive && !headless ? readKeys() : read(String.class, null);
+
+                if (input == null) {
+                    // End of input
+                    break;
+                }
+
+                lastInput = System.nanoTime();
+
+                metrics.readWait().record(System.nanoTime() - waiting, false);
+
+                MenuEvents.Dispatch event = new MenuEvents.Dispatch();
+                event.begin();
+
+                int split = split(input);
+                String pattern = split < 0 ? input : input.substring(0, split);
+                Arguments arguments;
+
+                try {
+                    arguments = split < 0 ? Arguments.NONE : Arguments.parse(input.substring(split));
+                } catch (IllegalArgumentException e) {
+                    if (interactive) {
+                        // Typed again like an invalid argument
+                        out.println(e.getMessage());
+                        continue;
+                    }
+
+                    dispatched(event, input, null, "error");
+                    step(input, null, "error", e, 0);
+                    throw e;
+                }
+
+                List<String> candidates = new ArrayList<>(0);
+                boolean bound = index.containsKey(pattern);
+                boolean paged = !bound && (pattern.equals(NEXT_PAGE) || pattern.equals(PREVIOUS_PAGE));
+                boolean searched = !bound && pattern.length() > 1 && pattern.charAt(0) == SEARCH;
+                boolean left = !bound && parent != null && (pattern.equals(BACK) || pattern.equals(HOME));
+                Option option = paged || left ? null
+                        : searched ? select(pattern.substring(1)) : resolve(pattern, candidates);
+                AssmusMenu child = null;
+                long start = System.nanoTime();
+                Object result = null;
+
+                try {
+                    if (paged) {
+                        setPage(pattern.equals(NEXT_PAGE) ? page + 1 : page - 1);
+                    } else if (left) {
+                        exit = pattern.equals(BACK) ? Exit.BACK : Exit.HOME;
+                        run = false;
+                    } else if (!candidates.isEmpty()) {
+                        printAmbiguous(pattern, candidates);
+                    } else if (option != null && option.isAsync()) {
+                        result = start(option, option.arguments(this, arguments));
+                    } else if (option != null && option.returnsMenu()) {
+                        child = children.get(option);
+
+                        if (child == null) {
+                            // The sub-menu is created once, when it is entered the first time.
+                            child = (AssmusMenu) option.invoke(this, option.arguments(this, arguments));
+
+                            if (child != null) {
+                                children.put(option, child);
+                            }
+                        }
+                    } else if (option != null) {
+                        result = option.invoke(this, option.arguments(this, arguments));
+
+                        if (option.returnsBoolean()) {
+                            // Reads back run variable
+                            run = !((boolean) result);
+                        }
+                    } else if (!searched && onUnknownInput != null) {
+                        Option.call(onUnknownInput, this, new Object[0]);
+                    }
+                } catch (Exception e) {
+                    if (option != null) {
+                        metrics.option(option).record(System.nanoTime() - start, true);
+                    }
+
+                    dispatched(event, input, option, "error");
+                    step(input, option, "error", e, System.nanoTime() - start);
+                    throw e;
+                }
+
+                if (option != null && !option.isAsync()) {
+                    metrics.option(option).record(System.nanoTime() - start, false);
+                }
+
+                String status = paged ? "page"
+                        : left ? exit.name().toLowerCase()
+                        : child != null ? "entered"
+                        : !candidates.isEmpty() ? "ambiguous"
+                        : option == null ? (searched ? "cancelled" : "unknown")
+                        : option.isAsync() ? "started" : "ok";
+
+                dispatched(event, input, option, status);
+
+                if (report != null || recorder != null) {
+                    step(input, option, status, result, System.nanoTime() - start);
+                }
+
+                if (child != null) {
+                    run = enter(child);
+                }
+            }
+
+            if (parent == null && (headless || !interactive)) {
+                awaitJobs();
+            }
+        } catch (Exception e) {
+            failure = e;
+            printException(e);
+        } finally {
+            RUNNING.set(previous);
+        }
+    }
+
+    /**
+     * Waits for the Jobs which are still running at the end of a script
+     * or headless run and delivers their results, so that neither a
+     * failure nor the output of a Job gets lost when run() returns.
+     */
+    private void awaitJobs() throws InterruptedException {
+        for (Job job : jobs) {
+            job.await();
+        }
+
+        deliverJobs();
+    }
+
+    /**
+     * Returns the index of the whitespace, which separates the pattern from
+     * the arguments of the passed input, or -1 if the whole input is the
+     * pattern, a search or has no arguments.
+     *
+     * @param input <String>
+     * @return <int>
+     */
+    private int split(String input) {
+        if (input.isEmpty() || input.charAt(0) == SEARCH || index.containsKey(input)) {
+            return -1;
+        }
+
+        for (int i = 1; i < input.length(); i++) {
+            if (Character.isWhitespace(input.charAt(i))) {
+                // A pattern of the provider may contain whitespace.
+                return provider != null && provider.find(input) >= 0 ? -1 : i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Commits the Dispatch event of a step, if it is recorded.
+     *
+     * @param event <MenuEvents.Dispatch>
+     * @param input <String>
+     * @param option <Option>
+     * @param status <String>
+     */
+    private void dispatched(MenuEvents.Dispatch event, String input, Option option, String status) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.menu = title;
+            event.input = input;
+            event.pattern = option != null ? option.getPattern() : null;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    /**
+     * Passes the outcome of a step to the report and the recorder.
+     *
+     * @param input <String>
+     * @param option <Option>
+     * @param status <String>
+     * @param result <Object>
+     * @param nanos <long>
+     */
+    private void step(String input, Option option, String status, Object result, long nanos) throws IOException {
+        if (report != null) {
+            report.step(input, option != null ? option.getName() : null, status, result, nanos);
+        }
+
+        if (recorder != null) {
+            recorder.step(input, option != null ? option.getName() : null, status, result, nanos);
+        }
+    }
+
+    /**
+     * Runs the passed sub-menu until the user goes back. It shares the
+     * input, the mode, the report, the recorder and the metrics of this
+     * menu, and hands its running jobs to this menu when it is left.
+     * Returns false if this menu has to be left too, because the user
+     * went home or quit.
+     *
+     * @param child <AssmusMenu>
+     * @return <boolean>
+     */
+    private boolean enter(AssmusMenu child) {
+        for (AssmusMenu menu = this; menu != null; menu = menu.parent) {
+            if (menu == child) {
+                throw new IllegalStateException("The menu " + child.title + " is already entered.");
+            }
+        }
+
+        child.parent = this;
+        child.interactive = interactive;
+        child.headless = headless;
+        child.report = report;
+        child.recorder = recorder;
+        child.metrics = metrics;
+        child.reader = reader;
+        child.unrecorded = unrecorded;
+        child.raw = raw;
+        child.idleTimeout = idleTimeout;
+        child.refreshInterval = refreshInterval;
+        child.frame = null;
+        child.run();
+
+        if (child.failure != null) {
+            failure = child.failure;
+        }
+
+        for (Job job : child.jobs) {
+            job.redirect(child.completedJobs, completedJobs);
+            jobs.add(job);
+        }
+
+        child.jobs.clear();
+
+        if (child.exit == Exit.HOME && parent != null) {
+            exit = Exit.HOME;
+        }
+
+        return child.exit == Exit.BACK || child.exit == Exit.HOME && parent == null;
+    }
+
+    /**
+     * Runs the menu non-interactively with the selections and answers read
+     * from the passed script, one per line. The result of each step is
+     * written as line of JSON to the passed report stream, if it isn't null.
+     *
+     * <code>
+     *     app.runScript(Path.of("nightly.txt"), System.err);
+     * </code>
+     *
+     * @param script <Path>
+     * @param report <PrintStream>
+     */
+    public void runScript(@NotNull Path script, PrintStream report) throws IOException {
+        try (Reader input = Files.newBufferedReader(script)) {
+            runScript(input, report);
+        }
+    }
+
+    /**
+     * Runs the menu non-interactively with the selections and answers read
+     * from the passed Reader. The result of each step is written as line of
+     * JSON to the passed report stream, if it isn't null.
+     *
+     * @param script <Reader>
+     * @param report <PrintStream>
+     */
+    public void runScript(@NotNull Reader script, PrintStream report) {
+        runScriptReport(script, report != null ? new ScriptReport(report) : null, false);
+    }
+
+    /**
+     * Runs the menu with the selections and answers read from the passed
+     * Reader without rendering it or printing prompts. If interactive is
+     * true, it waits for return after an error like an interactive menu,
+     * so a recorded interactive session can be replayed.
+     *
+     * @param script <Reader>
+     * @param report <ScriptReport>
+     * @param interactive <boolean>
+     */
+    void runScriptReport(Reader script, ScriptReport report, boolean interactive) {
+        BufferedReader reader = this.reader;
+        boolean wasInteractive = this.interactive;
+        ScriptReport scriptReport = this.report;
+
+        this.reader = recorder != null ? record(script) : new BufferedReader(script, 1 << 16);
+        this.interactive = interactive;
+        this.headless = true;
+        this.report = report;
+
+        try {
+            run();
+        } finally {
+            this.reader = reader;
+            this.interactive = wasInteractive;
+            this.headless = false;
+            this.report = scriptReport;
+        }
+    }
+
+    /**
+     * Registers a Converter, which is used by read to convert the
+     * user input into an instance of the passed type. It replaces a
+     * previously registered or built-in Converter of that type.
+     *
+     * <code>
+     *     AssmusMenu.registerConverter(CustomerId.class, CustomerId::parse);
+     * </code>
+     *
+     * @param type <Class<T>>
+     * @param converter <Converter<? extends T>>
+     */
+    public static <T> void registerConverter(@NotNull Class<T> type, @NotNull Converter<? extends T> converter) {
+        Converters.register(type, converter);
+    }
+
+    /**
+     * Registers a ParameterResolver, which provides the arguments of option
+     * method parameters of the passed type. It replaces a previously
+     * registered or built-in resolver. It has to be registered before the
+     * first menu with such a method is created, because the resolvers of
+     * the parameters are looked up once per class.
+     *
+     * <code>
+     *     AssmusMenu.registerParameterResolver(Clock.class, (menu, arguments) -> Clock.systemUTC());
+     * </code>
+     *
+     * @param type <Class<T>>
+     * @param resolver <ParameterResolver<? extends T>>
+     */
+    public static <T> void registerParameterResolver(@NotNull Class<T> type,
+                                                     @NotNull ParameterResolver<? extends T> resolver) {
+        ParameterResolvers.register(type, resolver);
+    }
+
+    /**
+     * Reads the user input from stdin and returns a
+     * value of type, which class was passed as
+     * parameter. In case of a String the line
+     * will be read. The input is converted by the
+     * Converter registered for the type.
+     *
+     * @param type Defines the return type.
+     * @param fmt A formatted String prompt.
+     * @param args Variables of the formatted String.
+     * @return The stdin input as instance of passed [type].class.
+     *
+     * <code>
+     *     String name = read(String.class, "name: ");
+     *     Integer age = read(Integer.class, "age: ");
+     *     Double price = read(Double.class, "price: ");
+     * </code>
+     */
+    protected  <T> T read(@NotNull Class<T> type, String fmt, Object ... args) {
+        String input;
+        T result = null;
+
+        prompt(fmt, args);
+
+        try {
+            input = readInput(type);
+            result = Converters.convert(type, input);
+        } catch (Exception e) {
+            printException(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the next line from stdin and reports the time
+     * blocked on it as InputWait event.
+     *
+     * @param type <Class>
+     * @return <String>
+     */
+    private String readInput(Class<?> type) throws IOException {
+        MenuEvents.InputWait event = new MenuEvents.InputWait();
+
+        event.begin();
+
+        String input = reader.readLine();
+
+        event.end();
+
+        if (raw && input != null) {
+            input = erase(input);
+        }
+
+        if (event.shouldCommit()) {
+            event.type = type.getName();
+            event.length = input != null ? input.length() : 0;
+            event.end = input == null;
+            event.commit();
+        }
+
+        return input;
+    }
+
+    /**
+     * Converts an argument typed after the pattern to the type of its
+     * parameter. If it is missing, it is read like an answer with the passed
+     * prompt, which is repeated until the input can be converted. If the menu
+     * isn't interactive, an invalid argument throws an IllegalArgumentException
+     * instead, so a script doesn't consume its next lines. Throws an
+     * EOFException at the end of the input.
+     *
+     * @param argument <String>
+     * @param type <Class<?>>
+     * @param prompt <String>
+     * @return <Object>
+     */
+    Object argument(String argument, Class<?> type, String prompt) throws IOException {
+        while (true) {
+            if (argument != null) {
+                try {
+                    return Converters.of(type).convert(argument);
+                } catch (Exception e) {
+                    if (!interactive) {
+                        throw new IllegalArgumentException(prompt + "invalid input \"" + argument + "\"", e);
+                    }
+
+                    out.printf("\"%s\" is no valid %s.%n", argument, type.getSimpleName());
+                }
+            }
+
+            prompt("%s", prompt);
+            argument = readInput(type);
+
+            if (argument == null) {
+                throw new EOFException("End of input reached");
+            }
+        }
+    }
 
     /**
-     * The constructor needs a title as String
+     * Reads the user input from stdin and returns a
+     * value of type, which class was passed as
+     * parameter. In case of a String the line
+     * will be read.
      *
-     * @param title <String>
+     * @param type Defines the return type.
+     * @return The stdin input as instance of passed [type].class.
+     *
+     * <code>
+     *     String name = read(String.class);
+     *     Integer age = read(Integer.class);
+     *     Double price = read(Double.class);
+     * </code>
      */
-    public AssmusMenu(String title) throws AlreadyBoundException {
-        this.title = title;
-        this.options = new ArrayList<>();
-
-        Class<? extends AssmusMenu> obj = this.getClass();
-        Method[] methods = obj.getDeclaredMethods();
-        Method unknownInput = null;
-
-        for (Method method : methods) {
-            Annotation[] annotations = method.getAnnotations();
-
-            for (Annotation annotation : annotations) {
-                if (annotation instanceof MenuOption) {
-                    String name = ((MenuOption) annotation).name();
-                    String pattern = ((MenuOption) annotation).pattern();
-
-                    add(new Option(name, pattern, method));
-                } else if (annotation instanceof OnUnknownInput) {
-                    if (unknownInput == null) {
-                        unknownInput = method;
-                    } else {
-                        throw new AlreadyBoundException(
-                            "Only one method with @OnUnknownInput annotation is possible."
-                        );
-                    }
+    protected  <T> T read(@NotNull Class<T> type) {
+        return read(type, null);
+    }
+
+    /**
+     * Reads the next line from stdin into the reusable line buffer
+     * and returns its length. Throws an EOFException at the end of
+     * the stream. The time blocked on it is reported as InputWait event.
+     *
+     * @param type <Class>
+     * @return <int>
+     */
+    private int readLine(Class<?> type) throws IOException {
+        MenuEvents.InputWait event = new MenuEvents.InputWait();
+        int length = -1;
+
+        event.begin();
+
+        try {
+            length = readChars();
+        } finally {
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.type = type.getName();
+                event.length = Math.max(length, 0);
+                event.end = length < 0;
+                event.commit();
+            }
+        }
+
+        return length;
+    }
+
+    private int readChars() throws IOException {
+        int length = 0;
+        int c;
+
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (raw && (c == DEL || c == '\b')) {
+                // The terminal doesn't edit the line in the raw mode.
+                length = Math.max(0, length - 1);
+                continue;
+            }
+
+            if (c == '\r') {
+                reader.mark(1);
+
+                if (reader.read() != '\n') {
+                    reader.reset();
                 }
+
+                break;
+            }
+
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
             }
+
+            line[length++] = (char) c;
+        }
+
+        if (c == -1 && length == 0) {
+            throw new EOFException("End of input reached");
         }
 
-        this.onUnknownInput = unknownInput;
-        this.reader = new BufferedReader(new InputStreamReader(System.in));
+        return length;
     }
 
     /**
-     * Returns the size of the underlying List of options.
+     * Reads the user input from stdin as int without creating an
+     * intermediate String or Integer. Throws an InputMismatchException
+     * if the input is not a valid int.
      *
-     * @return List of options size <int>
+     * @param fmt A formatted String prompt.
+     * @param args Variables of the formatted String.
+     * @return <int>
+     *
+     * <code>
+     *     int age = readInt("age: ");
+     * </code>
      */
-    public int size() {
-        return options.size();
+    protected int readInt(String fmt, Object ... args) throws IOException {
+        prompt(fmt, args);
+        return Primitives.parseInt(line, 0, readLine(int.class));
     }
 
     /**
-     * Adds an Option object to the list.
+     * Reads the user input from stdin as int.
      *
-     * @param option <Option>
+     * @return <int>
      */
-    public void add(Option option) {
-        options.add(option);
+    protected int readInt() throws IOException {
+        prompt(null);
+        return Primitives.parseInt(line, 0, readLine(int.class));
     }
 
     /**
-     * Removes an Option object from the list. Returns
-     * true on success and false on a failure.
+     * Reads the user input from stdin as long without creating an
+     * intermediate String or Long. Throws an InputMismatchException
+     * if the input is not a valid long.
      *
-     * @param option <Option>
-     * @return <boolean>
+     * @param fmt A formatted String prompt.
+     * @param args Variables of the formatted String.
+     * @return <long>
      */
-    public boolean remove(Option option) {
-        return options.remove(option);
+    protected long readLong(String fmt, Object ... args) throws IOException {
+        prompt(fmt, args);
+        return Primitives.parseLong(line, 0, readLine(long.class));
     }
 
     /**
-     * Removes the Option object on the position specified
-     * by the passed index from the list. Returns true on
-     * success and false on a failure.
+     * Reads the user input from stdin as long.
      *
-     * @param index <int>
-     * @return <boolean>
+     * @return <long>
      */
-    public Option remove(int index) {
-        return options.remove(index);
+    protected long readLong() throws IOException {
+        prompt(null);
+        return Primitives.parseLong(line, 0, readLine(long.class));
     }
 
     /**
-     * Returns the Option object at the position of the passed
-     * index from the list.
+     * Reads the user input from stdin as double without creating an
+     * intermediate String or Double. Throws an InputMismatchException
+     * if the input is not a valid double.
      *
-     * @param index <int>
-     * @return <Option>
+     * @param fmt A formatted String prompt.
+     * @param args Variables of the formatted String.
+     * @return <double>
      */
-    public Option get(int index) {
-        return options.get(index);
+    protected double readDouble(String fmt, Object ... args) throws IOException {
+        prompt(fmt, args);
+        return Primitives.parseDouble(line, 0, readLine(double.class));
     }
 
     /**
-     * Creates an underline consisting of "=" with the passed
-     * length.
+     * Reads the user input from stdin as double.
      *
-     * @param length <int>
-     * @return <String>
+     * @return <double>
      */
-    @Deprecated
-    private String getUnderline(int length) {
-        return "=".repeat(Math.max(0, length)) + "\n";
+    protected double readDouble() throws IOException {
+        prompt(null);
+        return Primitives.parseDouble(line, 0, readLine(double.class));
     }
 
     /**
-     * Tries to clear stdout.
+     * Reads the user input from stdin as boolean. Only "true" and "false"
+     * are accepted, any other input throws an InputMismatchException.
+     *
+     * @param fmt A formatted String prompt.
+     * @param args Variables of the formatted String.
+     * @return <boolean>
      */
-    public static void clear() throws IOException, InterruptedException {
-        final String os = System.getProperty("os.name");
+    protected boolean readBoolean(String fmt, Object ... args) throws IOException {
+        prompt(fmt, args);
+        return Primitives.parseBoolean(line, 0, readLine(boolean.class));
+    }
 
-        if (os.contains("Windows")) {
-            new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
-        } else {
-            new ProcessBuilder("bash", "clear").inheritIO().start().waitFor();
-        }
+    /**
+     * Reads the user input from stdin as boolean.
+     *
+     * @return <boolean>
+     */
+    protected boolean readBoolean() throws IOException {
+        prompt(null);
+        return Primitives.parseBoolean(line, 0, readLine(boolean.class));
     }
 
     /**
-     * Prints the resulting menu in std out.
+     * Waits for the next selection until the refresh interval or the idle
+     * timeout elapses or a Job finishes. Returns true if input is available.
+     * Without any of them the menu blocks in the read, like a script.
      *
-     * @param underline String "=======..." as underline for title separation.
+     * @return <boolean>
      */
-    private void render(String underline) throws IOException, InterruptedException {
-        clear();
-        System.out.printf("\n%s\n%s", title, underline);
+    private boolean awaitInput() throws InterruptedException {
+        boolean redraws = interactive && !jobs.isEmpty();
+
+        if (headless || idleTimeout == null && refreshInterval == null && !redraws) {
+            return true;
+        }
 
-        for (Option option : options) {
-            String optText = "   " +
-                    "(" +
-                    option.getPattern() +
-                    ") " +
-                    option.getName();
+        long timeout = refreshInterval != null ? refreshInterval.toNanos() : 0;
 
-            System.out.println(optText);
+        if (idleTimeout != null) {
+            long left = Math.max(1, idleTimeout.toNanos() - (System.nanoTime() - lastInput));
+            timeout = timeout > 0 ? Math.min(timeout, left) : left;
         }
 
-        System.out.flush();
+        InputMonitor monitor = monitor();
+
+        if (!completedJobs.isEmpty()) {
+            return false;
+        }
+
+        return monitor.await(timeout) == InputMonitor.Signal.INPUT;
     }
 
     /**
-     * Prints the resulting menu in std out. Creates an underline with the
-     * double length of title property.
+     * Returns the InputMonitor shared by the menu and its sub-menus, which
+     * is created on demand. From then on the monitor is the only reader of
+     * the input, so this menu and the running menus above it read the
+     * queued input instead.
      *
-     * Deprecated:
-     * Creating a new underline on each draw iteration is inefficiently.
+     * @return <InputMonitor>
      */
-    @Deprecated
-    private void render() throws IOException, InterruptedException {
-        render(getUnderline(title.length() * 2));
+    private InputMonitor monitor() {
+        AssmusMenu root = root();
+
+        if (root.monitor == null) {
+            root.monitor = new InputMonitor(recorder != null ? unrecorded : reader);
+
+            BufferedReader queued = new BufferedReader(root.monitor.reader());
+            BufferedReader recorded = recorder != null ? record(queued) : queued;
+
+            for (AssmusMenu menu = this; menu != null; menu = menu.parent) {
+                menu.unrecorded = recorder != null ? queued : menu.unrecorded;
+                menu.reader = recorded;
+            }
+        }
+
+        return root.monitor;
     }
 
     /**
-     * The run method is called from your `public static void main()` method.
+     * Returns the top menu.
      *
-     * <code>
-     *     class Main {
-     *           static void public main(String[] args) {
-     *               App app = new App("MY COOL CLI APP");
-     *               app.run();
-     *           }
-     *       }
-     * </code>
+     * @return <AssmusMenu>
+     */
+    private AssmusMenu root() {
+        AssmusMenu root = this;
+
+        while (root.parent != null) {
+            root = root.parent;
+        }
+
+        return root;
+    }
+
+    /**
+     * Reads the selection key by key in the raw mode. Returns as soon as
+     * the typed keys select an option or on Enter, or null at the end of
+     * the input. The selection is recorded as line.
      *
-     * If the return type of the invoked method is boolean, the run variable will
-     * be set to the return value.
+     * @return <String>
      */
-    public void run() {
-        boolean run = true;
-        String underline = "=".repeat(Math.max(0, title.length() * 2)) + "\n";
+    private String readKeys() throws IOException {
+        BufferedReader keys = recorder != null ? unrecorded : reader;
+        MenuEvents.InputWait event = new MenuEvents.InputWait();
+        StringBuilder input = new StringBuilder();
+        String selection = null;
+        int c;
 
-        try {
-            while (run) {
-                render(underline);
-                boolean foundFlag = false;
-                String pattern = read(String.class, "\n > ");
-
-                if (pattern != null && !pattern.isEmpty()) {
-                    for (Option option : options) {
-                        if (option.getPattern().equals(pattern)) {
-                            pattern = null;
-                            foundFlag = true;
-
-                            Class<?>[] argTypes = option.getParameterTypes();
-                            Object[] args = new Object[argTypes.length];
-
-                            for (int i = 0; i < argTypes.length; i++) {
-                                if (BufferedReader.class.equals(argTypes[i])) {
-                                    args[i] = reader;
-                                } else {
-                                    throw new IllegalArgumentException("Unknown argument");
-                                }
-                            }
+        event.begin();
 
-                            if (option.getReturnType().getTypeName().equals("boolean")) {
-                                // Reads back run variable
-                                run = !((boolean) option.invoke(this, args));
-                            } else {
-                                option.invoke(this, args);
-                            }
-                        }
-                    }
+        while ((c = keys.read()) != -1 && c != EOT) {
+            if (c == '\n') {
+                selection = input.length() == 0 && highlight >= 0 && highlight < entries()
+                        ? highlight < options.size() ? options.get(highlight).getPattern()
+                        : provider.pattern(highlight - options.size())
+                        : input.toString();
+                break;
+            } else if (c == ESC) {
+                if (arrow(keys)) {
+                    render();
+                    prompt("\n > ");
+                    out.print(input);
+                    out.flush();
                 }
+            } else if (c == DEL || c == '\b') {
+                input.setLength(Math.max(0, input.length() - 1));
+                out.print(terminal.isAnsi() ? "\r\033[2K > " : "\n > ");
+                out.print(input);
+                out.flush();
+            } else {
+                input.append((char) c);
 
-                if (!foundFlag) {
-                    onUnknownInput.invoke(this);
+                if (selects(input.toString())) {
+                    selection = input.toString();
+                    out.println();
+                    break;
                 }
             }
-        } catch (Exception e) {
-            printException(e);
         }
+
+        if (selection == null && input.length() > 0) {
+            selection = input.toString();
+        }
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.type = String.class.getName();
+            event.length = selection != null ? selection.length() : 0;
+            event.end = selection == null;
+            event.commit();
+        }
+
+        if (selection != null && recorder != null) {
+            recorder.input(selection);
+        }
+
+        return selection;
     }
 
     /**
-     * Reads the user input from stdin and returns a
-     * value of type, which class was passed as
-     * parameter. In case of a String the line
-     * will be read.
+     * Reads the rest of an escape sequence. The arrow keys up and down move
+     * the highlight, left and right turn the page. Returns true if the menu
+     * has to be rendered again.
      *
-     * @param type Defines the return type.
-     * @param fmt A formatted String prompt.
-     * @param args Variables of the formatted String.
-     * @return The stdin input as instance of passed [type].class.
+     * @param keys <BufferedReader>
+     * @return <boolean>
+     */
+    private boolean arrow(BufferedReader keys) throws IOException {
+        int c = keys.read();
+
+        if (c != '[' && c != 'O') {
+            return false;
+        }
+
+        switch (keys.read()) {
+            case 'A' -> moveHighlight(-1);
+            case 'B' -> moveHighlight(1);
+            case 'C' -> setPage(page + 1);
+            case 'D' -> setPage(page - 1);
+            default -> {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the highlight by the passed count of options and
+     * turns to its page.
      *
-     * <code>
-     *     String name = read(String.class, "name: ");
-     *     Integer age = read(Integer.class, "age: ");
-     *     Double price = read(Double.class, "price: ");
-     * </code>
+     * @param delta <int>
      */
-    protected  <T> T read(@NotNull Class<T> type, String fmt, Object ... args) {
-        String input;
-        T result = null;
+    private void moveHighlight(int delta) {
+        int entries = entries();
 
-        if (fmt != null) {
-            System.out.printf(fmt, args);
+        if (entries == 0) {
+            return;
         }
 
-        try {
-            input = reader.readLine();
-
-            if (String.class.equals(type)) {
-                result = type.cast(input);
-            } else if (Integer.class.equals(type)) {
-                result = type.cast(Integer.valueOf(input));
-            } else if (Long.class.equals(type)) {
-                result = type.cast(Long.valueOf(input));
-            } else if (Short.class.equals(type)) {
-                result = type.cast(Short.valueOf(input));
-            } else if (BigInteger.class.equals(type)) {
-                result = type.cast(new BigInteger(input));
-            } else if (Double.class.equals(type)) {
-                result = type.cast(Double.valueOf(input));
-            } else if (Float.class.equals(type)) {
-                result = type.cast(Float.valueOf(input));
-            } else if (BigDecimal.class.equals(type)) {
-                result = type.cast(new BigDecimal(input));
-            } else if (Boolean.class.equals(type)) {
-                result = type.cast(Boolean.valueOf(input));
-            } else if (Byte.class.equals(type)) {
-                result = type.cast(Byte.valueOf(input));
+        int size = getPageSize();
+        int first = Math.min(page * size, entries - 1);
+
+        if (highlight < 0 || highlight >= entries) {
+            highlight = delta > 0 ? first : Math.min(first + size, entries) - 1;
+        } else {
+            highlight = Math.max(0, Math.min(highlight + delta, entries - 1));
+        }
+
+        page = highlight / size;
+        frame = null;
+    }
+
+    /**
+     * Returns true if the typed keys can't be continued to another
+     * selection, so they are dispatched without Enter. An option taking
+     * arguments typed after its pattern waits for Enter.
+     *
+     * @param input <String>
+     * @return <boolean>
+     */
+    private boolean selects(String input) {
+        if (input.charAt(0) == SEARCH) {
+            // The query is read until Enter.
+            return false;
+        }
+
+        int count = trie().count(input);
+
+        if (count == 0) {
+            return input.equals(NEXT_PAGE) || input.equals(PREVIOUS_PAGE)
+                    || parent != null && (input.equals(BACK) || input.equals(HOME));
+        }
+
+        // The patterns of a provider are only known, when they are looked up.
+        if (count > 1 || provider != null || !prefixMatching && !index.containsKey(input)) {
+            return false;
+        }
+
+        Option option = trie().resolve(input, new ArrayList<>(0));
+        return option != null && !option.takesArguments();
+    }
+
+    /**
+     * Applies the delete and backspace characters in a line read in the
+     * raw mode, in which the terminal doesn't edit the line.
+     *
+     * @param input <String>
+     * @return <String>
+     */
+    private static String erase(String input) {
+        if (input.indexOf(DEL) < 0 && input.indexOf('\b') < 0) {
+            return input;
+        }
+
+        StringBuilder line = new StringBuilder(input.length());
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+
+            if (c == DEL || c == '\b') {
+                line.setLength(Math.max(0, line.length() - 1));
+            } else {
+                line.append(c);
             }
-        } catch (Exception e) {
-            printException(e);
         }
 
-        return result;
+        return line.toString();
     }
 
     /**
-     * Reads the user input from stdin and returns a
-     * value of type, which class was passed as
-     * parameter. In case of a String the line
-     * will be read.
+     * Prints the formatted prompt, if the menu is interactive, and
+     * flushes the pending output before the input is awaited.
      *
-     * @param type Defines the return type.
-     * @return The stdin input as instance of passed [type].class.
+     * @param fmt <String>
+     * @param args <Object[]>
+     */
+    private void prompt(String fmt, Object ... args) {
+        if (fmt != null && interactive && !headless) {
+            out.printf(fmt, args);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Prints the best matches of the query numbered and returns the one the
+     * user selects by its number, or null if nothing is found or the input
+     * is no valid number.
      *
-     * <code>
-     *     String name = read(String.class);
-     *     Integer age = read(Integer.class);
-     *     Double price = read(Double.class);
-     * </code>
+     * @param query <String>
+     * @return <Option>
      */
-    protected  <T> T read(@NotNull Class<T> type) {
-        return read(type, null);
+    private Option select(String query) {
+        List<Option> results = search(query, SEARCH_RESULTS);
+
+        if (results.isEmpty()) {
+            out.printf("No option matches \"%s\".\n", query);
+            out.flush();
+            return null;
+        }
+
+        StringBuilder text = new StringBuilder("\n");
+
+        for (int i = 0; i < results.size(); i++) {
+            Option option = results.get(i);
+            text.append(String.format("%3d) %s [%s]\n", i + 1, option.getName(), option.getPattern()));
+        }
+
+        out.print(text);
+        String selection = read(String.class, "\n Select 1-%d or hit return to cancel: ", results.size());
+
+        try {
+            int number = selection != null ? Integer.parseInt(selection.trim()) : 0;
+            return number > 0 && number <= results.size() ? results.get(number - 1) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Prints the patterns starting with an ambiguous input. Waits
+     * for return, if the menu is interactive.
+     *
+     * @param input <String>
+     * @param candidates <List<String>>
+     */
+    private void printAmbiguous(String input, List<String> candidates) {
+        out.printf("Ambiguous input \"%s\": %s%s\n", input, String.join(", ", candidates),
+                candidates.size() == PatternTrie.MAX_CANDIDATES ? ", ..." : "");
+
+        if (interactive) {
+            out.println("\n\tHit return to continue...");
+            out.flush();
+            read(String.class);
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the exception, which ended the last run of this menu or
+     * one of its sub-menus, or null if it ended normally.
+     *
+     * @return <Exception>
+     */
+    Exception failure() {
+        return failure;
     }
 
     /**
-     * Prints an Exception and its stack trace to stdout.
+     * Prints an Exception and its stack trace to the output. Waits
+     * for return, if the menu is interactive.
      * @param e Exception to be printed.
      */
     protected void printException(Exception e) {
-        System.out.printf("Error: %s\n", e);
-        e.printStackTrace();
-        System.err.println("\n\tHit return to continue...");
-        read(String.class);
+        out.printf("Error: %s\n", e);
+        e.printStackTrace(out);
+
+        if (interactive) {
+            out.println("\n\tHit return to continue...");
+            out.flush();
+            read(String.class);
+        } else {
+            out.flush();
+        }
     }
 
     /**
-     * Closes the BufferedReader on disposing.
+     * Closes the TerminalIO on disposing. Running Jobs
+     * are finished, but no new Job is accepted.
      */
     @Override
     public void close() throws Exception {
-        reader.close();
+        shutdown();
+
+        if (raw) {
+            io.setRaw(false);
+            raw = false;
+        }
+
+        if (monitor != null) {
+            monitor.close();
+        }
+
+        io.close();
+    }
+
+    /**
+     * Shuts down the executor of the jobs of this menu and its sub-menus.
+     * The sub-menus share the TerminalIO, so it isn't closed by them.
+     */
+    private void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        for (AssmusMenu child : children.values()) {
+            child.shutdown();
+        }
     }
 }
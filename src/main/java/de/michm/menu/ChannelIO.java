@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The TerminalIO of a blocking ByteChannel like a SocketChannel. Unlike the
+ * streams of Channels.newInputStream and Channels.newOutputStream, reading
+ * and writing don't share a lock, so a Job is able to write while the menu
+ * loop is waiting for input.
+ */
+final class ChannelIO implements TerminalIO {
+    final private BufferedReader reader;
+    final private PrintStream out;
+    final private boolean terminal;
+
+    /**
+     * Creates a UTF-8 encoded TerminalIO of the passed channel.
+     *
+     * @param channel <ByteChannel>
+     * @param terminal <boolean>
+     */
+    ChannelIO(ByteChannel channel, boolean terminal) {
+        this.reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+        this.out = new PrintStream(new BufferedOutputStream(new ChannelOutputStream(channel), 1 << 13),
+                false, StandardCharsets.UTF_8);
+        this.terminal = terminal;
+    }
+
+    @Override
+    public BufferedReader reader() {
+        return reader;
+    }
+
+    @Override
+    public PrintStream out() {
+        return out;
+    }
+
+    @Override
+    public Charset charset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return terminal;
+    }
+
+    @Override
+    public boolean isAnsi() {
+        return terminal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The pending output is flushed before the channel is closed.
+        out.close();
+        reader.close();
+    }
+
+    /**
+     * Writes directly to the channel.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        final private ByteChannel channel;
+
+        ChannelOutputStream(ByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, offset, length);
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
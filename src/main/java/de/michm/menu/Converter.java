@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+/**
+ * Converts a line of user input into an instance of a type. Converters
+ * are registered with AssmusMenu.registerConverter and used by read.
+ *
+ * <code>
+ *     AssmusMenu.registerConverter(CustomerId.class, CustomerId::parse);
+ *     CustomerId id = read(CustomerId.class, "Customer: ");
+ * </code>
+ *
+ * @param <T> The type the input is converted to.
+ */
+@FunctionalInterface
+public interface Converter<T> {
+    T convert(String input) throws Exception;
+}
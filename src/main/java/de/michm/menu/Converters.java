@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the Converters used by read. The Converter of a type is
+ * resolved on first use and cached in a ClassValue, so a conversion costs
+ * a single lookup, no matter how many types are registered. Registered
+ * Converters take precedence over the built-in ones.
+ */
+final class Converters {
+    final private static Map<Class<?>, Converter<?>> REGISTERED = new ConcurrentHashMap<>();
+    final private static Map<Class<?>, Converter<?>> BUILT_IN = Map.ofEntries(
+            Map.entry(String.class, input -> input),
+            Map.entry(Integer.class, Integer::valueOf),
+            Map.entry(Long.class, Long::valueOf),
+            Map.entry(Short.class, Short::valueOf),
+            Map.entry(BigInteger.class, BigInteger::new),
+            Map.entry(Double.class, Double::valueOf),
+            Map.entry(Float.class, Float::valueOf),
+            Map.entry(BigDecimal.class, BigDecimal::new),
+            Map.entry(Boolean.class, Boolean::valueOf),
+            Map.entry(Byte.class, Byte::valueOf),
+            Map.entry(Character.class, Converters::toCharacter),
+            Map.entry(UUID.class, UUID::fromString),
+            Map.entry(LocalDate.class, LocalDate::parse),
+            Map.entry(LocalTime.class, LocalTime::parse),
+            Map.entry(LocalDateTime.class, LocalDateTime::parse),
+            Map.entry(Path.class, Path::of)
+    );
+
+    final private static ClassValue<Converter<?>> RESOLVED = new ClassValue<>() {
+        @Override
+        protected Converter<?> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private Converters() {}
+
+    /**
+     * Registers a Converter for the passed type. It replaces a
+     * previously registered or built-in Converter. A primitive type
+     * and its wrapper share a Converter.
+     *
+     * @param type <Class<T>>
+     * @param converter <Converter<? extends T>>
+     */
+    static <T> void register(Class<T> type, Converter<? extends T> converter) {
+        Class<?> key = wrap(type);
+
+        REGISTERED.put(key, converter);
+        RESOLVED.remove(key);
+        RESOLVED.remove(unwrap(key));
+    }
+
+    /**
+     * Returns the Converter for the passed type. Throws an
+     * IllegalArgumentException if there is none.
+     *
+     * @param type <Class<T>>
+     * @return <Converter<T>>
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Converter<T> of(Class<T> type) {
+        return (Converter<T>) RESOLVED.get(type);
+    }
+
+    /**
+     * Converts the input by the Converter for the passed type. A primitive
+     * type returns its wrapper, since Class.cast() fails for primitives.
+     *
+     * @param type <Class<T>>
+     * @param input <String>
+     * @return <T>
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T convert(Class<T> type, String input) throws Exception {
+        return (T) wrap(type).cast(of(type).convert(input));
+    }
+
+    /**
+     * Returns true if a Converter for the passed type is
+     * registered or built in.
+     *
+     * @param type <Class<?>>
+     * @return <boolean>
+     */
+    static boolean has(Class<?> type) {
+        Class<?> key = wrap(type);
+        return REGISTERED.containsKey(key) || BUILT_IN.containsKey(key) || type.isEnum();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Converter<?> resolve(Class<?> type) {
+        Class<?> key = wrap(type);
+        Converter<?> converter = REGISTERED.get(key);
+
+        if (converter == null) {
+            converter = BUILT_IN.get(key);
+        }
+
+        if (converter == null && type.isEnum()) {
+            converter = input -> Enum.valueOf((Class) type, input.trim());
+        }
+
+        if (converter == null) {
+            converter = input -> {
+                throw new IllegalArgumentException("No converter registered for " + type.getName());
+            };
+        }
+
+        return converter;
+    }
+
+    /**
+     * Returns the wrapper class of a primitive type, so both
+     * share a Converter.
+     *
+     * @param type <Class<?>>
+     * @return <Class<?>>
+     */
+    static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+
+        return Void.class;
+    }
+
+    /**
+     * Returns the primitive type of a wrapper class, or
+     * the passed type if it wraps none.
+     *
+     * @param type <Class<?>>
+     * @return <Class<?>>
+     */
+    static Class<?> unwrap(Class<?> type) {
+        if (type == Integer.class) {
+            return int.class;
+        } else if (type == Long.class) {
+            return long.class;
+        } else if (type == Double.class) {
+            return double.class;
+        } else if (type == Boolean.class) {
+            return boolean.class;
+        } else if (type == Short.class) {
+            return short.class;
+        } else if (type == Float.class) {
+            return float.class;
+        } else if (type == Byte.class) {
+            return byte.class;
+        } else if (type == Character.class) {
+            return char.class;
+        }
+
+        return type;
+    }
+
+    private static Character toCharacter(String input) {
+        if (input.length() != 1) {
+            throw new IllegalArgumentException("For input \"" + input + "\": not a single character");
+        }
+
+        return input.charAt(0);
+    }
+}
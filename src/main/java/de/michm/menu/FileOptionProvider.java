@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An OptionProvider of a UTF-8 encoded text file with one entry per line.
+ * A line holds the pattern and the name separated by a tab, the lines have
+ * to be sorted by their pattern (e.g. by "LC_ALL=C sort"):
+ *
+ * <code>
+ *     c-10001	Ada Lovelace
+ *     c-10002	Alan Turing
+ * </code>
+ *
+ * The file is read once on construction to build a sparse index, which holds
+ * the offset and the first pattern of every block of 64 lines. An entry is
+ * read from its block on demand and the last few blocks are cached, so the
+ * memory doesn't grow with the entries, but with the blocks of the file.
+ * The cache is shared, so a provider can be used by several sessions of a
+ * MenuServer at once.
+ */
+public class FileOptionProvider implements OptionProvider, Closeable {
+    /**
+     * The count of lines per block of the index.
+     */
+    final static int BLOCK_LINES = 64;
+
+    /**
+     * The count of blocks kept decoded.
+     */
+    final static int CACHED_BLOCKS = 8;
+
+    final static char SEPARATOR = '\t';
+
+    final private FileChannel channel;
+    final private Action action;
+    final private int size;
+    final private long[] offsets;
+    final private String[] firstPatterns;
+    final private Map<Integer, String[]> cache = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    /**
+     * Is called with the pattern and the name of the selected entry.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void select(AssmusMenu menu, String pattern, String name) throws Exception;
+    }
+
+    /**
+     * Opens the passed file and builds the index of its lines. Throws an
+     * IllegalArgumentException if a line is blank or has no pattern or
+     * the lines aren't sorted by their pattern.
+     *
+     * @param file <Path>
+     * @param action <Action>
+     */
+    public FileOptionProvider(Path file, Action action) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.action = action;
+
+        long[] offsets = new long[16];
+        String[] firstPatterns = new String[16];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        byte[] line = new byte[256];
+        int length = 0;
+        int lines = 0;
+        long offset = 0;
+        long position = 0;
+        String previous = null;
+
+        try {
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+
+                if (read > 0) {
+                    position += read;
+                } else if (length == 0) {
+                    break;
+                }
+
+                buffer.flip();
+                boolean end = read <= 0;
+
+                // At the end of the file the last line may lack a line feed.
+                while (buffer.hasRemaining() || end) {
+                    byte b = end ? (byte) '\n' : buffer.get();
+                    end = false;
+
+                    if (b != '\n') {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+
+                        line[length++] = b;
+                        continue;
+                    }
+
+                    String pattern = pattern(line, length);
+
+                    if (pattern.isEmpty()) {
+                        boolean blank = length == 0 || length == 1 && line[0] == '\r';
+                        throw new IllegalArgumentException("Line " + (lines + 1) + " of " + file
+                                + (blank ? " is blank" : " has no pattern"));
+                    }
+
+                    if (previous != null && compare(previous, pattern) >= 0) {
+                        throw new IllegalArgumentException("Line " + (lines + 1) + " of " + file
+                                + " isn't sorted by its pattern: \"" + pattern + "\"");
+                    }
+
+                    if (lines % BLOCK_LINES == 0) {
+                        int block = lines / BLOCK_LINES;
+
+                        if (block + 1 >= offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                            firstPatterns = Arrays.copyOf(firstPatterns, firstPatterns.length * 2);
+                        }
+
+                        offsets[block] = offset;
+                        firstPatterns[block] = pattern;
+                    }
+
+                    previous = pattern;
+                    offset += length + 1;
+                    length = 0;
+                    lines++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        int blocks = (lines + BLOCK_LINES - 1) / BLOCK_LINES;
+        offsets[blocks] = Math.min(offset, channel.size());
+
+        this.size = lines;
+        this.offsets = Arrays.copyOf(offsets, blocks + 1);
+        this.firstPatterns = Arrays.copyOf(firstPatterns, blocks);
+    }
+
+    /**
+     * Compares the passed patterns by their code points, which is the
+     * order of their UTF-8 bytes and thus the order of "LC_ALL=C sort".
+     * String.compareTo() compares UTF-16 chars and sorts the characters
+     * beyond U+FFFF before the ones from U+E000 to U+FFFF.
+     *
+     * @param a <String>
+     * @param b <String>
+     * @return <int>
+     */
+    static int compare(String a, String b) {
+        int i = 0;
+        int j = 0;
+
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static String pattern(byte[] line, int length) {
+        int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+
+        for (int i = 0; i < end; i++) {
+            if (line[i] == SEPARATOR) {
+                return new String(line, 0, i, StandardCharsets.UTF_8);
+            }
+        }
+
+        return new String(line, 0, end, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String name(int index) {
+        String line = line(index);
+        int separator = line.indexOf(SEPARATOR);
+        return separator < 0 ? line : line.substring(separator + 1);
+    }
+
+    @Override
+    public String pattern(int index) {
+        String line = line(index);
+        int separator = line.indexOf(SEPARATOR);
+        return separator < 0 ? line : line.substring(0, separator);
+    }
+
+    /**
+     * Searches the block of the pattern by the first patterns of
+     * the blocks and then the pattern in the block.
+     *
+     * @param pattern <String>
+     * @return <int>
+     */
+    @Override
+    public int find(String pattern) {
+        int block = Arrays.binarySearch(firstPatterns, pattern, FileOptionProvider::compare);
+
+        if (block >= 0) {
+            return block * BLOCK_LINES;
+        } else if (block == -1) {
+            return -1;
+        }
+
+        block = -block - 2;
+        String[] lines = block(block);
+
+        for (int i = 1; i < lines.length; i++) {
+            int separator = lines[i].indexOf(SEPARATOR);
+            String candidate = separator < 0 ? lines[i] : lines[i].substring(0, separator);
+
+            if (candidate.equals(pattern)) {
+                return block * BLOCK_LINES + i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public void select(AssmusMenu menu, int index) throws Exception {
+        String line = line(index);
+        int separator = line.indexOf(SEPARATOR);
+
+        if (separator < 0) {
+            action.select(menu, line, line);
+        } else {
+            action.select(menu, line.substring(0, separator), line.substring(separator + 1));
+        }
+    }
+
+    private String line(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return block(index / BLOCK_LINES)[index % BLOCK_LINES];
+    }
+
+    /**
+     * Returns the decoded lines of the passed block. The cache is
+     * reordered by every access and thus guarded by its monitor, the
+     * block itself is read without holding it.
+     *
+     * @param block <int>
+     * @return <String[]>
+     */
+    private String[] block(int block) {
+        String[] lines;
+
+        synchronized (cache) {
+            lines = cache.get(block);
+        }
+
+        if (lines != null) {
+            return lines;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[block + 1] - offsets[block]));
+
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offsets[block] + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        lines = new String[Math.min(BLOCK_LINES, size - block * BLOCK_LINES)];
+        int start = 0;
+
+        for (int i = 0; i < lines.length; i++) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end;
+            lines[i] = text.substring(start, end > start && text.charAt(end - 1) == '\r' ? end - 1 : end);
+            start = end + 1;
+        }
+
+        synchronized (cache) {
+            cache.put(block, lines);
+        }
+
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the input of a menu with a deadline. A background task is the
+ * only reader of the source and queues what it reads. The menu, the option
+ * methods and the prompts read the queued input from reader(), so a read
+ * never races with the background task. The task runs on a virtual thread
+ * if the JVM supports them, so a waiting session doesn't block a platform
+ * thread.
+ */
+final class InputMonitor implements Closeable {
+    /**
+     * The count of queued characters, at which the background
+     * task stops reading until the menu has caught up.
+     */
+    final static int MAX_QUEUED = 1 << 16;
+
+    /**
+     * The reasons a wait ends.
+     */
+    enum Signal {
+        INPUT,
+        WAKEUP,
+        TIMEOUT
+    }
+
+    final private Reader source;
+    final private Reader reader = new QueueReader();
+    final private ExecutorService executor = Threads.newExecutor("AssmusMenu-input");
+    final private Object mutex = new Object();
+    private char[] queue = new char[256];
+    private int start;
+    private int end;
+    private boolean closed;
+    private IOException error;
+    private boolean woken;
+
+    /**
+     * Creates a monitor, which starts reading the passed source. It must
+     * not be read by anyone else afterwards.
+     *
+     * @param source <Reader>
+     */
+    InputMonitor(Reader source) {
+        this.source = source;
+        executor.execute(this::pump);
+    }
+
+    /**
+     * Returns the reader of the queued input.
+     *
+     * @return <Reader>
+     */
+    Reader reader() {
+        return reader;
+    }
+
+    /**
+     * Waits until input or the end of the input is available, wakeup()
+     * is called or the passed count of nanoseconds has elapsed. A timeout of
+     * 0 or less waits without deadline.
+     *
+     * @param timeout <long>
+     * @return <Signal>
+     */
+    Signal await(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout;
+
+        synchronized (mutex) {
+            while (!available() && !woken) {
+                long left = deadline - System.nanoTime();
+
+                if (timeout <= 0) {
+                    mutex.wait();
+                } else if (left > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(mutex, left);
+                } else {
+                    return Signal.TIMEOUT;
+                }
+            }
+
+            if (available()) {
+                return Signal.INPUT;
+            }
+
+            woken = false;
+            return Signal.WAKEUP;
+        }
+    }
+
+    /**
+     * Ends the current or the next wait, e.g. because a Job has finished.
+     */
+    void wakeup() {
+        synchronized (mutex) {
+            woken = true;
+            mutex.notifyAll();
+        }
+    }
+
+    private boolean available() {
+        return start < end || closed;
+    }
+
+    private void pump() {
+        char[] chunk = new char[1024];
+
+        try {
+            int count;
+
+            while ((count = source.read(chunk)) != -1) {
+                synchronized (mutex) {
+                    while (end - start >= MAX_QUEUED) {
+                        mutex.wait();
+                    }
+
+                    if (end + count > queue.length) {
+                        // Moves the unread input to the front and grows the queue, if it is still too small.
+                        char[] next = end - start + count > queue.length ? new char[(end - start + count) * 2] : queue;
+                        System.arraycopy(queue, start, next, 0, end - start);
+                        queue = next;
+                        end -= start;
+                        start = 0;
+                    }
+
+                    System.arraycopy(chunk, 0, queue, end, count);
+                    end += count;
+                    mutex.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (mutex) {
+                error = e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (mutex) {
+            closed = true;
+            mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the background task. A read, which is blocked in
+     * the source, ends with the source.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reads the queued input and blocks until there is some.
+     */
+    private final class QueueReader extends Reader {
+        @Override
+        public int read(char[] buf, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            synchronized (mutex) {
+                while (start == end && !closed) {
+                    try {
+                        mutex.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+
+                if (start == end) {
+                    if (error != null) {
+                        throw error;
+                    }
+
+                    return -1;
+                }
+
+                int count = Math.min(length, end - start);
+                System.arraycopy(queue, start, buf, offset, count);
+                start += count;
+
+                if (start == end) {
+                    start = 0;
+                    end = 0;
+                }
+
+                mutex.notifyAll();
+                return count;
+            }
+        }
+
+        @Override
+        public void close() {
+            // The source is closed with the TerminalIO.
+        }
+    }
+}
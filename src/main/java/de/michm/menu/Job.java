@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A Job is the execution of an option annotated with
+ * {@code @MenuOption(async = true)}, which runs in the background
+ * while the menu stays responsive. Its result or exception is
+ * delivered back to the menu loop when it has finished.
+ */
+public final class Job {
+    /**
+     * The states of a Job.
+     */
+    public enum Status {
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    final private int id;
+    final private String name;
+    final private long start;
+    private volatile Status status;
+    private volatile Object result;
+    private volatile Throwable error;
+    private volatile long end;
+    final private CountDownLatch finished = new CountDownLatch(1);
+    private Queue<Job> delivery;
+
+    Job(int id, String name, Queue<Job> delivery) {
+        this.id = id;
+        this.name = name;
+        this.delivery = delivery;
+        this.start = System.nanoTime();
+        this.status = Status.RUNNING;
+    }
+
+    /**
+     * Returns the number of the Job.
+     *
+     * @return <int>
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the option.
+     *
+     * @return <String>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the status.
+     *
+     * @return <Status>
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the return value of the option method, if it is done.
+     *
+     * @return <Object>
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the exception thrown by the option method, if it failed.
+     *
+     * @return <Throwable>
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the time the Job is running or has been running.
+     *
+     * @return <Duration>
+     */
+    public Duration getDuration() {
+        return Duration.ofNanos((status == Status.RUNNING ? System.nanoTime() : end) - start);
+    }
+
+    void complete(Object result) {
+        this.result = result;
+        this.end = System.nanoTime();
+        this.status = Status.DONE;
+    }
+
+    void fail(Throwable error) {
+        this.error = error;
+        this.end = System.nanoTime();
+        this.status = Status.FAILED;
+    }
+
+    /**
+     * Passes the finished Job to the queue of the menu, which delivers it.
+     */
+    synchronized void deliver() {
+        delivery.add(this);
+        finished.countDown();
+    }
+
+    /**
+     * Moves the Job from the passed queue to another one, e.g. from a
+     * sub-menu to its parent. If it has finished already and waits in the
+     * former queue, it is moved over.
+     *
+     * @param from <Queue<Job>>
+     * @param to <Queue<Job>>
+     */
+    synchronized void redirect(Queue<Job> from, Queue<Job> to) {
+        if (from.remove(this)) {
+            to.add(this);
+        }
+
+        delivery = to;
+    }
+
+    /**
+     * Waits until the Job has finished and is delivered.
+     */
+    void await() throws InterruptedException {
+        finished.await();
+    }
+
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An in-memory TerminalIO. The input is read from the passed String and
+ * the output is collected, so menus can be tested and benchmarked without
+ * redirecting System.in and System.out.
+ *
+ * <code>
+ *     MemoryIO io = new MemoryIO("i\nq\n", false);
+ *     new App("Awesome App", io).run();
+ *     assert io.getOutput().contains("Information");
+ * </code>
+ */
+public final class MemoryIO implements TerminalIO {
+    final private BufferedReader reader;
+    final private ByteArrayOutputStream buffer;
+    final private PrintStream out;
+    final private boolean terminal;
+
+    /**
+     * The constructor expects the whole input. If terminal is true,
+     * the menu renders itself and writes escape sequences like it
+     * does on an interactive ANSI terminal.
+     *
+     * @param input <String>
+     * @param terminal <boolean>
+     */
+    public MemoryIO(String input, boolean terminal) {
+        this.reader = new BufferedReader(new StringReader(input));
+        this.buffer = new ByteArrayOutputStream();
+        this.out = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+        this.terminal = terminal;
+    }
+
+    /**
+     * Returns the output written so far.
+     *
+     * @return <String>
+     */
+    public String getOutput() {
+        out.flush();
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Discards the output written so far.
+     */
+    public void reset() {
+        out.flush();
+        buffer.reset();
+    }
+
+    @Override
+    public BufferedReader reader() {
+        return reader;
+    }
+
+    @Override
+    public PrintStream out() {
+        return out;
+    }
+
+    @Override
+    public Charset charset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return terminal;
+    }
+
+    @Override
+    public boolean isAnsi() {
+        return terminal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
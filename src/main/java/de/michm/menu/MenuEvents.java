@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder events of the menu. They are disabled unless a
+ * recording is running, in which case a begin/commit pair costs about as
+ * much as two calls of System.nanoTime(). Stack traces are not recorded,
+ * so the events are cheap enough to leave enabled in production.
+ *
+ * <code>
+ *     java -XX:StartFlightRecording=filename=menu.jfr -jar app.jar
+ *     jfr print --categories AssmusMenu menu.jfr
+ * </code>
+ */
+final class MenuEvents {
+    final static String CATEGORY = "AssmusMenu";
+
+    private MenuEvents() {}
+
+    /**
+     * A selection from reading the input until the option returned.
+     */
+    @Name("de.michm.menu.Dispatch")
+    @Label("Menu Dispatch")
+    @Description("Handling of a selection, including reading the arguments and invoking the option")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Dispatch extends Event {
+        @Label("Menu")
+        String menu;
+
+        @Label("Input")
+        String input;
+
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Status")
+        @Description("ok, error, started, entered, back, home, page, ambiguous, cancelled or unknown")
+        String status;
+    }
+
+    /**
+     * The invocation of the method an option is bound to.
+     */
+    @Name("de.michm.menu.Invoke")
+    @Label("Option Invoke")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Invoke extends Event {
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Name")
+        String name;
+
+        @Label("Async")
+        boolean async;
+
+        @Label("Outcome")
+        @Description("ok or the class of the thrown exception")
+        String outcome;
+    }
+
+    /**
+     * The drawing of the menu.
+     */
+    @Name("de.michm.menu.Render")
+    @Label("Menu Render")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Render extends Event {
+        @Label("Menu")
+        String menu;
+
+        @Label("Cached")
+        @Description("Whether the frame was reused")
+        boolean cached;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * The clearing of the screen. A running menu clears it with the frame,
+     * which is written in one piece, so that Clear event is committed
+     * within the Render event and takes no time of its own.
+     */
+    @Name("de.michm.menu.Clear")
+    @Label("Screen Clear")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Clear extends Event {
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * The time spent blocked on the input.
+     */
+    @Name("de.michm.menu.InputWait")
+    @Label("Input Wait")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class InputWait extends Event {
+        @Label("Type")
+        @Description("The type the input is converted to")
+        String type;
+
+        @Label("Characters")
+        long length;
+
+        @Label("End of Input")
+        boolean end;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+/**
+ * Creates the menu of a session, which is connected to its
+ * user by the passed TerminalIO.
+ *
+ * <code>
+ *     MenuServer server = MenuServer.tcp(4711, io -> new App("Awesome App", io));
+ * </code>
+ */
+@FunctionalInterface
+public interface MenuFactory {
+    AssmusMenu create(TerminalIO io) throws Exception;
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.rmi.AlreadyBoundException;
+import java.util.*;
+
+/**
+ * The MenuMetadata holds the options and the @OnUnknownInput handler of an
+ * AssmusMenu subclass. It is created once per class, either from the generated
+ * MenuTable or by scanning the annotated methods, and shared by all instances
+ * of that class. The options and the index are unmodifiable.
+ *
+ * Nested menu classes annotated with @MenuOption become options, which enter
+ * the sub-menu. A sub-menu is constructed and scanned when it is entered the
+ * first time.
+ */
+final class MenuMetadata {
+    final static String TABLE_SUFFIX = "_MenuTable";
+
+    final private static ClassValue<MenuMetadata> CACHE = new ClassValue<>() {
+        @Override
+        protected MenuMetadata computeValue(Class<?> type) {
+            return scan(type);
+        }
+    };
+
+    final private List<Option> options;
+    final private Map<String, Option> index;
+    final private PatternTrie trie;
+    final private MethodHandle onUnknownInput;
+    final private String error;
+
+    private MenuMetadata(List<Option> options, Map<String, Option> index, MethodHandle onUnknownInput, String error) {
+        this.options = Collections.unmodifiableList(options);
+        this.index = Collections.unmodifiableMap(index);
+        this.trie = new PatternTrie(index.values());
+        this.onUnknownInput = onUnknownInput;
+        this.error = error;
+    }
+
+    /**
+     * Returns the MenuMetadata of the passed class. Only the first call
+     * per class scans it. Throws an AlreadyBoundException if a pattern or
+     * the @OnUnknownInput annotation is used more than once.
+     *
+     * @param type <Class<?>>
+     * @return <MenuMetadata>
+     */
+    static MenuMetadata of(Class<? extends AssmusMenu> type) throws AlreadyBoundException {
+        MenuMetadata metadata = CACHE.get(type);
+
+        if (metadata.error != null) {
+            throw new AlreadyBoundException(metadata.error);
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Returns the unmodifiable list of options.
+     *
+     * @return <List<Option>>
+     */
+    List<Option> options() {
+        return options;
+    }
+
+    /**
+     * Returns the unmodifiable index of the options by their pattern.
+     *
+     * @return <Map<String, Option>>
+     */
+    Map<String, Option> index() {
+        return index;
+    }
+
+    /**
+     * Returns the trie of the patterns. It must not be modified.
+     *
+     * @return <PatternTrie>
+     */
+    PatternTrie trie() {
+        return trie;
+    }
+
+    /**
+     * Returns the bound @OnUnknownInput method or null.
+     *
+     * @return <MethodHandle>
+     */
+    MethodHandle onUnknownInput() {
+        return onUnknownInput;
+    }
+
+    /**
+     * Creates the message for a pattern, which is bound twice.
+     *
+     * @param option <Option>
+     * @param bound <Option>
+     * @return <String>
+     */
+    static String alreadyBound(Option option, Option bound) {
+        return "The pattern \"" + option.getPattern() + "\" of " + option.getName()
+                + " is already bound to " + bound.getName() + ".";
+    }
+
+    /**
+     * Collects the options of the passed class from its generated
+     * MenuTable or from its annotated methods.
+     *
+     * @param type <Class<?>>
+     * @return <MenuMetadata>
+     */
+    static MenuMetadata scan(Class<?> type) {
+        List<Option> options = new ArrayList<>();
+        Map<String, Option> index = new HashMap<>();
+        MenuTable table = findTable(type);
+        MethodHandle unknownInput = null;
+        String error = null;
+
+        if (table != null) {
+            for (int i = 0; i < table.size(); i++) {
+                options.add(new Option(table, i));
+            }
+
+            if (table.hasOnUnknownInput()) {
+                unknownInput = Option.bindOnUnknownInput(table);
+            }
+        } else {
+            for (Method method : type.getDeclaredMethods()) {
+                Annotation[] annotations = method.getAnnotations();
+
+                for (Annotation annotation : annotations) {
+                    if (annotation instanceof MenuOption) {
+                        String name = ((MenuOption) annotation).name();
+                        String pattern = ((MenuOption) annotation).pattern();
+                        boolean async = ((MenuOption) annotation).async();
+
+                        options.add(new Option(name, pattern, method, async));
+                    } else if (annotation instanceof OnUnknownInput) {
+                        if (unknownInput == null) {
+                            unknownInput = Option.bind(method);
+                        } else {
+                            error = "Only one method with @OnUnknownInput annotation is possible.";
+                        }
+                    }
+                }
+            }
+
+            for (Class<?> nested : type.getDeclaredClasses()) {
+                MenuOption annotation = nested.getAnnotation(MenuOption.class);
+
+                if (annotation != null) {
+                    options.add(new Option(annotation.name(), annotation.pattern(), nested));
+                }
+            }
+        }
+
+        for (Option option : options) {
+            Option bound = index.putIfAbsent(option.getPattern(), option);
+
+            if (bound != null && error == null) {
+                error = alreadyBound(option, bound);
+            }
+        }
+
+        return new MenuMetadata(options, index, unknownInput, error);
+    }
+
+    /**
+     * Looks up the MenuTable generated by the annotation processor for
+     * the passed class. The processor registers the tables as services
+     * in META-INF/services/de.michm.menu.MenuTable, so they are found
+     * without Class.forName() and in a native image as well. Returns
+     * null if there is none, so the options have to be scanned by
+     * reflection. A broken table isn't ignored, but its error is thrown.
+     *
+     * @param type <Class<?>>
+     * @return <MenuTable>
+     */
+    private static MenuTable findTable(Class<?> type) {
+        String name = type.getName() + TABLE_SUFFIX;
+
+        Iterator<ServiceLoader.Provider<MenuTable>> providers =
+                ServiceLoader.load(MenuTable.class, type.getClassLoader()).stream().iterator();
+
+        while (providers.hasNext()) {
+            ServiceLoader.Provider<MenuTable> provider = providers.next();
+
+            // Only the type of the provider is loaded, not the other tables themselves.
+            if (provider.type().getName().equals(name)) {
+                return provider.get();
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MenuMetrics count the invocations and errors of every option and
+ * record their latency, the time a redraw takes and the time the menu waits
+ * for the selection of the user. The counters are lock-free, so recording
+ * costs two reads of System.nanoTime and a few atomic increments per step.
+ * A menu and its sub-menus share their metrics.
+ *
+ * <code>
+ *     MenuMetrics.Snapshot snapshot = app.getMetrics().snapshot();
+ *     snapshot.getOptions().forEach(System.out::println);
+ * </code>
+ */
+public final class MenuMetrics {
+    final private Map<Option, Timer> options = new ConcurrentHashMap<>();
+    final private Timer render = new Timer();
+    final private Timer readWait = new Timer();
+
+    /**
+     * Returns the Timer of the passed option.
+     *
+     * @param option <Option>
+     * @return <Timer>
+     */
+    Timer option(Option option) {
+        Timer timer = options.get(option);
+        return timer != null ? timer : options.computeIfAbsent(option, key -> new Timer());
+    }
+
+    /**
+     * Returns the Timer of the redraws.
+     *
+     * @return <Timer>
+     */
+    Timer render() {
+        return render;
+    }
+
+    /**
+     * Returns the Timer of the waits for a selection.
+     *
+     * @return <Timer>
+     */
+    Timer readWait() {
+        return readWait;
+    }
+
+    /**
+     * Returns the current values. The options are sorted by their
+     * count of invocations, the most frequent first.
+     *
+     * @return <Snapshot>
+     */
+    public Snapshot snapshot() {
+        List<Stats> stats = new ArrayList<>(options.size());
+
+        options.forEach((option, timer) -> stats.add(timer.stats(option.getName(), option.getPattern())));
+        stats.sort(Comparator.comparingLong(Stats::getCount).reversed());
+
+        return new Snapshot(stats, render.stats("render", null), readWait.stats("read wait", null));
+    }
+
+    /**
+     * A lock-free histogram of durations. The buckets grow exponentially
+     * with 4 buckets per power of two, so a percentile is exact by 25%.
+     */
+    static final class Timer {
+        final static int SUB_BUCKETS = 4;
+        final static int BUCKETS = 64 * SUB_BUCKETS;
+
+        final private LongAdder count = new LongAdder();
+        final private LongAdder errors = new LongAdder();
+        final private LongAdder total = new LongAdder();
+        final private AtomicLong max = new AtomicLong();
+        final private AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos <long>
+         * @param error <boolean>
+         */
+        void record(long nanos, boolean error) {
+            nanos = Math.max(0, nanos);
+            count.increment();
+            total.add(nanos);
+            buckets.incrementAndGet(bucket(nanos));
+
+            if (error) {
+                errors.increment();
+            }
+
+            long current = max.get();
+
+            while (nanos > current && !max.compareAndSet(current, nanos)) {
+                current = max.get();
+            }
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return (exponent - 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * Returns the largest duration of the passed bucket.
+         *
+         * @param bucket <int>
+         * @return <long>
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+
+            int exponent = bucket / SUB_BUCKETS + 1;
+            long sub = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+        }
+
+        Stats stats(String name, String pattern) {
+            long[] counts = new long[BUCKETS];
+
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+            }
+
+            return new Stats(name, pattern, count.sum(), errors.sum(), total.sum(), max.get(), counts);
+        }
+    }
+
+    /**
+     * The values of a Timer at the time of the snapshot.
+     */
+    public static final class Stats {
+        final private String name;
+        final private String pattern;
+        final private long count;
+        final private long errors;
+        final private long totalNanos;
+        final private long maxNanos;
+        final private long[] buckets;
+
+        private Stats(String name, String pattern, long count, long errors, long totalNanos, long maxNanos, long[] buckets) {
+            this.name = name;
+            this.pattern = pattern;
+            this.count = count;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        /**
+         * Returns the name of the option or of the timing.
+         *
+         * @return <String>
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the pattern of the option or null.
+         *
+         * @return <String>
+         */
+        public String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the count of recorded durations.
+         *
+         * @return <long>
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the count of invocations, which threw an exception.
+         *
+         * @return <long>
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the mean duration in nanoseconds.
+         *
+         * @return <long>
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Returns the longest duration in nanoseconds.
+         *
+         * @return <long>
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns the duration in nanoseconds, which the passed share of
+         * the recorded durations doesn't exceed, e.g. 0.99 for the 99th
+         * percentile.
+         *
+         * @param quantile <double>
+         * @return <long>
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+
+            long rank = (long) Math.ceil(Math.min(1, Math.max(0, quantile)) * total);
+            long seen = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+
+                if (seen >= rank && seen > 0) {
+                    return Math.min(Timer.upperBound(i), maxNanos);
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                    pattern != null ? name + " (" + pattern + ")" : name, count, errors,
+                    getMeanNanos() / 1e6, getPercentileNanos(0.5) / 1e6,
+                    getPercentileNanos(0.99) / 1e6, maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * The values of all timers at the time of the snapshot.
+     */
+    public static final class Snapshot {
+        final private List<Stats> options;
+        final private Stats render;
+        final private Stats readWait;
+
+        private Snapshot(List<Stats> options, Stats render, Stats readWait) {
+            this.options = Collections.unmodifiableList(options);
+            this.render = render;
+            this.readWait = readWait;
+        }
+
+        /**
+         * Returns the Stats of the invoked options, the most
+         * frequent first.
+         *
+         * @return <List<Stats>>
+         */
+        public List<Stats> getOptions() {
+            return options;
+        }
+
+        /**
+         * Returns the Stats of the option with the passed pattern or null,
+         * if it wasn't invoked yet.
+         *
+         * @param pattern <String>
+         * @return <Stats>
+         */
+        public Stats get(String pattern) {
+            for (Stats stats : options) {
+                if (stats.pattern.equals(pattern)) {
+                    return stats;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns the Stats of the redraws.
+         *
+         * @return <Stats>
+         */
+        public Stats getRender() {
+            return render;
+        }
+
+        /**
+         * Returns the Stats of the waits for a selection.
+         *
+         * @return <Stats>
+         */
+        public Stats getReadWait() {
+            return readWait;
+        }
+    }
+}
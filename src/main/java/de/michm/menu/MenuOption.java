@@ -22,7 +22,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Marks a method for using in the menu
+ * Marks a method for using in the menu. If async is true, the
+ * method runs in the background as Job and the menu stays responsive.
  *
  */
 @Target({ElementType.TYPE, ElementType.METHOD})
@@ -30,4 +31,5 @@ import java.lang.annotation.Target;
 public @interface MenuOption {
     String name();
     String pattern();
+    boolean async() default false;
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The MenuServer hosts many menu sessions in one process. It accepts
+ * connections on a Unix domain socket or a loopback TCP port and runs an
+ * independent menu per connection, each on its own (virtual) thread. All
+ * menus of a class share the option metadata, so a session only costs
+ * its own state.
+ *
+ * <code>
+ *     try (MenuServer server = MenuServer.unix(Path.of("/run/app/menu.sock"), io -> new App("Awesome App", io))) {
+ *         server.serve();
+ *     }
+ * </code>
+ *
+ * Clients connect e.g. with {@code socat -,raw,echo=0 UNIX-CONNECT:/run/app/menu.sock}
+ * or {@code nc localhost 4711}.
+ */
+public final class MenuServer implements Closeable {
+    final private static System.Logger LOGGER = System.getLogger(MenuServer.class.getName());
+
+    final private ServerSocketChannel server;
+    final private MenuFactory factory;
+    final private Path socketFile;
+    final private ExecutorService sessions;
+    final private AtomicInteger active = new AtomicInteger();
+    private volatile boolean terminal = true;
+    private volatile Consumer<Exception> errorHandler = e -> LOGGER.log(System.Logger.Level.WARNING, "Menu session failed", e);
+
+    private MenuServer(ServerSocketChannel server, MenuFactory factory, Path socketFile) {
+        this.server = server;
+        this.factory = factory;
+        this.socketFile = socketFile;
+        this.sessions = Threads.newExecutor("AssmusMenu-session");
+    }
+
+    /**
+     * Opens a MenuServer on the Unix domain socket at the passed path.
+     * The socket file is deleted on close.
+     *
+     * @param path <Path>
+     * @param factory <MenuFactory>
+     * @return <MenuServer>
+     */
+    public static MenuServer unix(Path path, MenuFactory factory) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+
+        try {
+            server.bind(UnixDomainSocketAddress.of(path));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        return new MenuServer(server, factory, path);
+    }
+
+    /**
+     * Opens a MenuServer on the passed TCP port of the loopback interface.
+     * Passing 0 binds an ephemeral port, see getAddress.
+     *
+     * @param port <int>
+     * @param factory <MenuFactory>
+     * @return <MenuServer>
+     */
+    public static MenuServer tcp(int port, MenuFactory factory) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+
+        return new MenuServer(server, factory, null);
+    }
+
+    /**
+     * Returns the address the server is bound to.
+     *
+     * @return <SocketAddress>
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Returns the count of running sessions.
+     *
+     * @return <int>
+     */
+    public int getSessionCount() {
+        return active.get();
+    }
+
+    /**
+     * Sets whether clients are handled as interactive ANSI terminals.
+     * Defaults to true. Without, menus are neither rendered nor cleared,
+     * which suits scripted clients.
+     *
+     * @param terminal <boolean>
+     */
+    public void setTerminal(boolean terminal) {
+        this.terminal = terminal;
+    }
+
+    /**
+     * Sets the handler of the exceptions, which end a session: thrown by
+     * the MenuFactory, by an option or by the connection. By default, they
+     * are logged as warning by the System.Logger named after this class.
+     * The client is told the error before the session is closed.
+     *
+     * @param errorHandler <Consumer<Exception>>
+     */
+    public void setErrorHandler(@NotNull Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Accepts connections until the server is closed. Every connection
+     * runs its own menu session in the background.
+     */
+    public void serve() throws IOException {
+        try {
+            while (server.isOpen()) {
+                SocketChannel channel = server.accept();
+                sessions.execute(() -> session(channel));
+            }
+        } catch (ClosedChannelException e) {
+            // The server was closed.
+        }
+    }
+
+    /**
+     * Runs the menu of a connection until it ends or the client disconnects.
+     *
+     * @param channel <SocketChannel>
+     */
+    private void session(SocketChannel channel) {
+        active.incrementAndGet();
+
+        try (channel) {
+            try (AssmusMenu menu = factory.create(TerminalIO.of(channel, terminal))) {
+                menu.run();
+
+                // The menu has printed the error of an option to the client already.
+                if (menu.failure() != null) {
+                    errorHandler.accept(menu.failure());
+                }
+            } catch (Exception e) {
+                // The session is lost, the others keep running.
+                errorHandler.accept(e);
+                tell(channel, e);
+            }
+        } catch (IOException e) {
+            errorHandler.accept(e);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the exception, which ended the session, to the
+     * client, if it is still connected.
+     *
+     * @param channel <SocketChannel>
+     * @param e <Exception>
+     */
+    private static void tell(SocketChannel channel, Exception e) {
+        if (!channel.isOpen()) {
+            return;
+        }
+
+        ByteBuffer line = ByteBuffer.wrap(("Error: " + e + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException ignored) {
+            // The client has disconnected.
+        }
+    }
+
+    /**
+     * Stops accepting connections. Running sessions end, when their
+     * clients disconnect.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            server.close();
+            sessions.shutdown();
+        } finally {
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+/**
+ * A MenuTable holds the options of an AssmusMenu subclass and calls their
+ * methods directly. It is generated at compile time by the annotation
+ * processor of the AssmusMenu-processor module as companion class named
+ * [binary class name]_MenuTable and registered as service. If the companion
+ * class is registered, the AssmusMenu constructor uses it instead of scanning
+ * the annotated methods by reflection.
+ */
+public interface MenuTable {
+    /**
+     * Returns the count of options.
+     *
+     * @return <int>
+     */
+    int size();
+
+    /**
+     * Returns the name of the option at the passed index.
+     *
+     * @param index <int>
+     * @return <String>
+     */
+    String name(int index);
+
+    /**
+     * Returns the pattern of the option at the passed index.
+     *
+     * @param index <int>
+     * @return <String>
+     */
+    String pattern(int index);
+
+    /**
+     * Returns the parameter types of the option method at the passed index.
+     *
+     * @param index <int>
+     * @return <Class<?>[]>
+     */
+    Class<?>[] parameterTypes(int index);
+
+    /**
+     * Returns the return type of the option method at the passed index.
+     *
+     * @param index <int>
+     * @return <Class<?>>
+     */
+    Class<?> returnType(int index);
+
+    /**
+     * Returns true if the option method at the passed index runs
+     * in the background. Tables generated by older versions of the
+     * processor don't support async options.
+     *
+     * @param index <int>
+     * @return <boolean>
+     */
+    default boolean async(int index) {
+        return false;
+    }
+
+    /**
+     * Calls the option method at the passed index of the menu.
+     *
+     * @param menu <AssmusMenu>
+     * @param index <int>
+     * @param args <Object[]>
+     * @return The return value of the method or null if it is void.
+     */
+    Object invoke(AssmusMenu menu, int index, Object[] args) throws Exception;
+
+    /**
+     * Returns true if a method is annotated with @OnUnknownInput.
+     *
+     * @return <boolean>
+     */
+    boolean hasOnUnknownInput();
+
+    /**
+     * Calls the method annotated with @OnUnknownInput of the menu.
+     *
+     * @param menu <AssmusMenu>
+     */
+    void onUnknownInput(AssmusMenu menu) throws Exception;
+}
@@ -16,20 +16,65 @@
 
 package de.michm.menu;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Objects;
 
 /**
  * The Option class is the representation of an option in the menu.
  * It will be created in the ConsoleMenu constructor from an annotated
  * method of the derived class.
+ *
+ * On construction the method is bound to a MethodHandle of the type
+ * (AssmusMenu, Object[])Object and the arguments and the kind of the
+ * return value are resolved once, so a selection needs neither
+ * reflection nor any lookup of the method signature.
  */
 
 class Option {
+    /**
+     * The uniform type of all bound option methods.
+     */
+    final static MethodType TYPE = MethodType.methodType(Object.class, AssmusMenu.class, Object[].class);
+
+    final private static Object[] NO_ARGS = new Object[0];
+    final private static MethodHandle TABLE_INVOKE;
+    final private static MethodHandle TABLE_ON_UNKNOWN_INPUT;
+    final private static MethodHandle MENU_IO;
+    final private static MethodHandle PROVIDER_SELECT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            TABLE_INVOKE = lookup.findVirtual(MenuTable.class, "invoke",
+                    MethodType.methodType(Object.class, AssmusMenu.class, int.class, Object[].class));
+            TABLE_ON_UNKNOWN_INPUT = lookup.findVirtual(MenuTable.class, "onUnknownInput",
+                    MethodType.methodType(void.class, AssmusMenu.class));
+            MENU_IO = lookup.findVirtual(AssmusMenu.class, "io", MethodType.methodType(TerminalIO.class));
+            PROVIDER_SELECT = lookup.findVirtual(OptionProvider.class, "select",
+                    MethodType.methodType(void.class, AssmusMenu.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     final private String name;
     final private String pattern;
     final private Method action;
+    final private Class<?>[] parameterTypes;
+    final private Class<?> returnType;
+    final private MethodHandle invoker;
+    final private ParameterResolver<?>[] plan;
+    final private boolean returnsBoolean;
+    final private boolean returnsMenu;
+    final private boolean async;
+    final private boolean inline;
 
     /**
      * The constructor expects 3 parameters: The name of the option,
@@ -40,9 +85,186 @@ class Option {
      * @param action <Method>
      */
     Option(String name, String pattern, Method action) {
+        this(name, pattern, action, false);
+    }
+
+    /**
+     * Creates an Option, which method runs in the background
+     * as Job if async is true.
+     *
+     * @param name <String>
+     * @param pattern <String>
+     * @param action <Method>
+     * @param async <boolean>
+     */
+    Option(String name, String pattern, Method action, boolean async) {
+        this(name, pattern, action, action.getParameterTypes(), action.getReturnType(), bind(action), async);
+    }
+
+    /**
+     * Creates an Option, which enters a sub-menu of the passed class. The
+     * class needs a constructor, which takes the TerminalIO of the parent
+     * menu. It is constructed when the option is selected the first time.
+     *
+     * @param name <String>
+     * @param pattern <String>
+     * @param menu <Class<?>>
+     */
+    Option(String name, String pattern, Class<?> menu) {
+        this(name, pattern, null, new Class<?>[0], menu, bindMenu(menu), false);
+    }
+
+    /**
+     * Creates an Option of the entry at the passed index of a generated
+     * MenuTable. The method is called directly by the table, so no
+     * action method is stored.
+     *
+     * @param table <MenuTable>
+     * @param index <int>
+     */
+    Option(MenuTable table, int index) {
+        this(table.name(index), table.pattern(index), null, table.parameterTypes(index), table.returnType(index),
+                MethodHandles.insertArguments(TABLE_INVOKE.bindTo(table), 1, index), table.async(index));
+    }
+
+    /**
+     * Creates an Option of the entry at the passed index of an
+     * OptionProvider, which selects the entry when it is invoked.
+     *
+     * @param provider <OptionProvider>
+     * @param index <int>
+     */
+    Option(OptionProvider provider, int index) {
+        this(provider.name(index), provider.pattern(index), null, new Class<?>[0], void.class,
+                MethodHandles.dropArguments(MethodHandles.insertArguments(PROVIDER_SELECT.bindTo(provider), 1, index),
+                        1, Object[].class).asType(TYPE), false);
+    }
+
+    private Option(String name, String pattern, Method action, Class<?>[] parameterTypes,
+                   Class<?> returnType, MethodHandle invoker, boolean async) {
         this.name = name;
         this.pattern = pattern;
         this.action = action;
+        this.parameterTypes = parameterTypes;
+        this.returnType = returnType;
+        this.invoker = invoker;
+        this.plan = new ParameterResolver<?>[parameterTypes.length];
+        this.returnsBoolean = boolean.class.equals(returnType);
+        this.returnsMenu = AssmusMenu.class.isAssignableFrom(returnType);
+        this.async = async;
+
+        int position = 0;
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            plan[i] = ParameterResolvers.of(parameterTypes[i]);
+
+            if (plan[i] == null && Converters.has(parameterTypes[i])) {
+                // Taken from the arguments typed after the pattern
+                plan[i] = ParameterResolvers.inline(position++, parameterTypes[i], name);
+            } else if (plan[i] == null) {
+                throw new IllegalArgumentException("The parameter " + (i + 1) + " of the option \"" + name
+                        + "\" is a " + parameterTypes[i].getName() + ", which has neither a ParameterResolver nor a Converter.");
+            }
+        }
+
+        this.inline = position > 0;
+    }
+
+    /**
+     * Binds the passed method to a MethodHandle of the uniform TYPE. The
+     * arguments are spread from the passed array and the return value is
+     * boxed, or null if the method is void.
+     *
+     * @param method <Method>
+     * @return <MethodHandle>
+     */
+    static MethodHandle bind(Method method) {
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException e) {
+            // Not opened to this module, the lookup decides about the access.
+        }
+
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access " + method, e);
+        }
+    }
+
+    /**
+     * Binds the constructor of a sub-menu class to a MethodHandle of the
+     * uniform TYPE, which passes the TerminalIO of the parent menu. The
+     * constructor of an inner class gets the parent as enclosing instance.
+     *
+     * @param type <Class<?>>
+     * @return <MethodHandle>
+     */
+    static MethodHandle bindMenu(Class<?> type) {
+        if (!AssmusMenu.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getName() + " has to extend " + AssmusMenu.class.getName() + ".");
+        }
+
+        Class<?> outer = Modifier.isStatic(type.getModifiers()) ? null : type.getDeclaringClass();
+
+        try {
+            Constructor<?> constructor = outer == null
+                    ? type.getDeclaredConstructor(TerminalIO.class)
+                    : type.getDeclaredConstructor(outer, TerminalIO.class);
+
+            try {
+                constructor.setAccessible(true);
+            } catch (RuntimeException e) {
+                // Not opened to this module, the lookup decides about the access.
+            }
+
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+
+            if (outer == null) {
+                handle = MethodHandles.filterArguments(
+                        handle.asType(MethodType.methodType(Object.class, TerminalIO.class)), 0, MENU_IO);
+            } else {
+                handle = MethodHandles.filterArguments(
+                        handle.asType(MethodType.methodType(Object.class, AssmusMenu.class, TerminalIO.class)), 1, MENU_IO);
+                handle = MethodHandles.permuteArguments(handle, MethodType.methodType(Object.class, AssmusMenu.class), 0, 0);
+            }
+
+            return MethodHandles.dropArguments(handle, 1, Object[].class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a constructor with a TerminalIO parameter.", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access the constructor of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Binds the method annotated with @OnUnknownInput of the passed
+     * generated MenuTable to a MethodHandle of the uniform TYPE.
+     *
+     * @param table <MenuTable>
+     * @return <MethodHandle>
+     */
+    static MethodHandle bindOnUnknownInput(MenuTable table) {
+        return MethodHandles.dropArguments(TABLE_ON_UNKNOWN_INPUT.bindTo(table), 1, Object[].class).asType(TYPE);
+    }
+
+    /**
+     * Calls a MethodHandle of the uniform TYPE. Like Method.invoke any
+     * exception of the called method is wrapped in an InvocationTargetException.
+     *
+     * @param handle <MethodHandle>
+     * @param instance <AssmusMenu>
+     * @param args <Object[]>
+     * @return <Object>
+     */
+    static Object call(MethodHandle handle, AssmusMenu instance, Object[] args) throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(instance, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
     /**
@@ -64,7 +286,8 @@ class Option {
     }
 
     /**
-     * Returns the action method.
+     * Returns the action method or null, if the
+     * Option was created from a generated MenuTable.
      *
      * @return <Method>
      */
@@ -73,14 +296,91 @@ class Option {
     }
 
     /**
-     * Uses Java reflection to invoke the method, which reference is stored in action,
-     * of the passed AssmusMenu instance. Any further argument will be passed to the
-     * invoked method.
+     * Invokes the bound method of the option on the passed AssmusMenu instance.
+     * Any further argument will be passed to the invoked method.
      *
      * @param args <Object[]>
      */
-    public Object invoke(AssmusMenu instance, Object ... args) throws InvocationTargetException, IllegalAccessException {
-        return action.invoke(instance, args);
+    public Object invoke(AssmusMenu instance, Object ... args) throws InvocationTargetException {
+        MenuEvents.Invoke event = new MenuEvents.Invoke();
+        String outcome = "ok";
+
+        event.begin();
+
+        try {
+            return call(invoker, instance, args);
+        } catch (InvocationTargetException e) {
+            outcome = e.getCause().getClass().getName();
+            throw e;
+        } finally {
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.pattern = pattern;
+                event.name = name;
+                event.async = async;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Resolves the arguments of the method by the plan created on construction.
+     *
+     * @param menu <AssmusMenu>
+     * @param arguments <Arguments>
+     * @return <Object[]>
+     */
+    Object[] arguments(AssmusMenu menu, Arguments arguments) throws Exception {
+        if (plan.length == 0) {
+            return NO_ARGS;
+        }
+
+        Object[] args = new Object[plan.length];
+
+        for (int i = 0; i < plan.length; i++) {
+            args[i] = plan[i].resolve(menu, arguments);
+        }
+
+        return args;
+    }
+
+    /**
+     * Returns true if the method returns a primitive boolean.
+     *
+     * @return <boolean>
+     */
+    boolean returnsBoolean() {
+        return returnsBoolean;
+    }
+
+    /**
+     * Returns true if the option returns a sub-menu, which is
+     * entered when the option is selected.
+     *
+     * @return <boolean>
+     */
+    boolean returnsMenu() {
+        return returnsMenu;
+    }
+
+    /**
+     * Returns true if the method runs in the background as Job.
+     *
+     * @return <boolean>
+     */
+    boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Returns true if the method takes arguments typed after the pattern.
+     *
+     * @return <boolean>
+     */
+    boolean takesArguments() {
+        return inline;
     }
 
     /**
@@ -89,7 +389,7 @@ class Option {
      * @return <int>
      */
     int getParameterCount() {
-        return action.getParameterCount();
+        return parameterTypes.length;
     }
 
     /**
@@ -98,7 +398,7 @@ class Option {
      * @return <Class<?>[]>
      */
     Class<?>[] getParameterTypes() {
-        return action.getParameterTypes();
+        return parameterTypes.clone();
     }
 
     /**
@@ -107,7 +407,7 @@ class Option {
      * @return <Class<?>>
      */
     Class<?> getReturnType() {
-        return action.getReturnType();
+        return returnType;
     }
 
     @Override
@@ -117,7 +417,7 @@ class Option {
         Option option = (Option) o;
         return getName().equals(option.getName())
                 && getPattern().equals(option.getPattern())
-                && getAction().equals(option.getAction());
+                && Objects.equals(getAction(), option.getAction());
     }
 
     @Override
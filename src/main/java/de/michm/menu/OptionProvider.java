@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+/**
+ * An OptionProvider supplies the entries of a menu, which are backed by data
+ * like a file or a database, on demand. The menu only asks for the entries
+ * of the rendered page and for the one the user selects, so no Option is
+ * created for the other entries. The entries are listed after the options
+ * of the menu.
+ *
+ * <code>
+ *     app.setProvider(new FileOptionProvider(Path.of("customers.tsv"), (menu, pattern, name) -> open(pattern)));
+ * </code>
+ */
+public interface OptionProvider {
+    /**
+     * Returns the count of entries.
+     *
+     * @return <int>
+     */
+    int size();
+
+    /**
+     * Returns the name of the entry at the passed index.
+     *
+     * @param index <int>
+     * @return <String>
+     */
+    String name(int index);
+
+    /**
+     * Returns the pattern of the entry at the passed index.
+     *
+     * @param index <int>
+     * @return <String>
+     */
+    String pattern(int index);
+
+    /**
+     * Returns the index of the entry with the passed pattern or -1.
+     *
+     * @param pattern <String>
+     * @return <int>
+     */
+    int find(String pattern);
+
+    /**
+     * Is called when the user selects the entry at the passed index.
+     *
+     * @param menu <AssmusMenu>
+     * @param index <int>
+     */
+    void select(AssmusMenu menu, int index) throws Exception;
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+/**
+ * Provides the argument of a parameter of an option method. Resolvers are
+ * registered per parameter type with AssmusMenu.registerParameterResolver.
+ * Which resolver provides which argument is decided once, when the options
+ * of a menu class are created. A parameter of a type without resolver takes
+ * the next argument typed after the pattern, if the type has a Converter, or
+ * else fails on construction of the menu. Resolvers for the reader, the
+ * output, the TerminalIO, the menu, its metrics and the Arguments typed
+ * after the pattern are built in.
+ *
+ * <code>
+ *     AssmusMenu.registerParameterResolver(Clock.class, (menu, arguments) -> Clock.systemUTC());
+ *
+ *     @MenuOption(name = "Time", pattern = "t")
+ *     void time(Clock clock, PrintStream out) {
+ *         out.println(clock.instant());
+ *     }
+ * </code>
+ *
+ * @param <T> The type of the parameter.
+ */
+@FunctionalInterface
+public interface ParameterResolver<T> {
+    T resolve(AssmusMenu menu, Arguments arguments) throws Exception;
+}
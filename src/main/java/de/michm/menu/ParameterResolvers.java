@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the ParameterResolvers of option methods. It is only
+ * consulted when options are created. Registered resolvers take precedence
+ * over the built-in ones. A parameter of any other type, which has a
+ * Converter, takes the next argument typed after the pattern.
+ */
+final class ParameterResolvers {
+    final private static Map<Class<?>, ParameterResolver<?>> REGISTERED = new ConcurrentHashMap<>();
+    final private static Map<Class<?>, ParameterResolver<?>> BUILT_IN = Map.of(
+            BufferedReader.class, (menu, arguments) -> menu.reader(),
+            PrintStream.class, (menu, arguments) -> menu.out(),
+            TerminalIO.class, (menu, arguments) -> menu.io(),
+            AssmusMenu.class, (menu, arguments) -> menu,
+            MenuMetrics.class, (menu, arguments) -> menu.getMetrics(),
+            Arguments.class, (menu, arguments) -> arguments
+    );
+
+    private ParameterResolvers() {}
+
+    /**
+     * Registers a ParameterResolver for the passed type. It replaces a
+     * previously registered or built-in resolver for options, which are
+     * created afterwards.
+     *
+     * @param type <Class<T>>
+     * @param resolver <ParameterResolver<? extends T>>
+     */
+    static <T> void register(Class<T> type, ParameterResolver<? extends T> resolver) {
+        REGISTERED.put(type, resolver);
+    }
+
+    /**
+     * Returns a ParameterResolver, which converts the argument typed at the
+     * passed position after the pattern to the passed type. If it is missing
+     * or invalid, the user is asked for it.
+     *
+     * @param position <int>
+     * @param type <Class<?>>
+     * @param option <String>
+     * @return <ParameterResolver<?>>
+     */
+    static ParameterResolver<?> inline(int position, Class<?> type, String option) {
+        String prompt = option + ", argument " + (position + 1) + " (" + type.getSimpleName() + "): ";
+        return (menu, arguments) -> menu.argument(arguments.get(position), type, prompt);
+    }
+
+    /**
+     * Returns the ParameterResolver for the passed type or null.
+     *
+     * @param type <Class<?>>
+     * @return <ParameterResolver<?>>
+     */
+    static ParameterResolver<?> of(Class<?> type) {
+        ParameterResolver<?> resolver = REGISTERED.get(type);
+        return resolver != null ? resolver : BUILT_IN.get(type);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A trie of the option patterns. It resolves a typed input to the option,
+ * whose pattern is equal to it or is the only one starting with it, in time
+ * proportional to the length of the input, no matter how many options exist.
+ */
+final class PatternTrie {
+    /**
+     * The count of candidates collected for an ambiguous input.
+     */
+    final static int MAX_CANDIDATES = 10;
+
+    final private Node root = new Node();
+
+    /**
+     * Creates a trie of the passed options.
+     *
+     * @param options <Iterable<Option>>
+     */
+    PatternTrie(Iterable<Option> options) {
+        for (Option option : options) {
+            add(option);
+        }
+    }
+
+    /**
+     * Adds an option. Its pattern must not be bound yet.
+     *
+     * @param option <Option>
+     */
+    void add(Option option) {
+        String pattern = option.getPattern();
+        Node node = root;
+        node.count++;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            node = node.child(pattern.charAt(i), true);
+            node.count++;
+        }
+
+        node.option = option;
+    }
+
+    /**
+     * Removes an option, if it is bound to its pattern.
+     *
+     * @param option <Option>
+     */
+    void remove(Option option) {
+        String pattern = option.getPattern();
+        Node[] path = new Node[pattern.length() + 1];
+        Node node = root;
+        path[0] = node;
+
+        for (int i = 0; i < pattern.length() && node != null; i++) {
+            node = node.child(pattern.charAt(i), false);
+            path[i + 1] = node;
+        }
+
+        if (node == null || !option.equals(node.option)) {
+            return;
+        }
+
+        node.option = null;
+
+        for (int i = pattern.length(); i >= 0; i--) {
+            if (--path[i].count == 0 && i > 0) {
+                path[i - 1].removeChild(pattern.charAt(i - 1));
+            }
+        }
+    }
+
+    /**
+     * Resolves the passed input. Returns the option, whose pattern is equal
+     * to the input or the only one starting with it, or null. The patterns
+     * starting with an ambiguous input are added to the passed list.
+     *
+     * @param input <String>
+     * @param candidates <List<String>>
+     * @return <Option>
+     */
+    Option resolve(String input, List<String> candidates) {
+        Node node = root;
+
+        for (int i = 0; i < input.length() && node != null; i++) {
+            node = node.child(input.charAt(i), false);
+        }
+
+        if (node == null) {
+            return null;
+        } else if (node.option != null) {
+            return node.option;
+        } else if (node.count == 1) {
+            while (node.option == null) {
+                node = node.children[0];
+            }
+
+            return node.option;
+        }
+
+        collect(node, candidates);
+        return null;
+    }
+
+    /**
+     * Returns the count of patterns starting with the passed input.
+     *
+     * @param input <String>
+     * @return <int>
+     */
+    int count(String input) {
+        Node node = root;
+
+        for (int i = 0; i < input.length() && node != null; i++) {
+            node = node.child(input.charAt(i), false);
+        }
+
+        return node != null ? node.count : 0;
+    }
+
+    private static void collect(Node node, List<String> candidates) {
+        if (candidates.size() >= MAX_CANDIDATES) {
+            return;
+        }
+
+        if (node.option != null) {
+            candidates.add(node.option.getPattern());
+        }
+
+        for (int i = 0; i < node.size; i++) {
+            collect(node.children[i], candidates);
+        }
+    }
+
+    /**
+     * A node of the trie. The children are kept in arrays sorted by
+     * their key, which is compact for the small fan-out of patterns.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int size;
+        private int count;
+        private Option option;
+
+        Node child(char key, boolean create) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+
+            if (i >= 0) {
+                return children[i];
+            } else if (!create) {
+                return null;
+            }
+
+            i = -i - 1;
+
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(2, size * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(children, i, children, i + 1, size - i);
+            keys[i] = key;
+            children[i] = new Node();
+            size++;
+            return children[i];
+        }
+
+        void removeChild(char key) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+
+            if (i >= 0) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(children, i + 1, children, i, size - i - 1);
+                children[--size] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.util.InputMismatchException;
+
+/**
+ * Parses primitive values directly from a range of a char array, so neither
+ * a String nor a boxed value is created. Leading and trailing whitespace is
+ * ignored. Malformed input throws an InputMismatchException. Input with
+ * non-ASCII characters is delegated to the JDK, so e.g. the full width
+ * digits accepted by Long.parseLong are accepted as well.
+ */
+final class Primitives {
+    /**
+     * Powers of ten, which are exactly representable as double.
+     */
+    final private static double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The largest mantissa, which is exactly representable as double.
+     */
+    final private static long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private Primitives() {}
+
+    /**
+     * Parses an int from the passed range.
+     *
+     * @param buf <char[]>
+     * @param offset <int>
+     * @param length <int>
+     * @return <int>
+     */
+    static int parseInt(char[] buf, int offset, int length) {
+        long value = parseLong(buf, offset, length, "int");
+
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw mismatch(buf, offset, length, "int");
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Parses a long from the passed range.
+     *
+     * @param buf <char[]>
+     * @param offset <int>
+     * @param length <int>
+     * @return <long>
+     */
+    static long parseLong(char[] buf, int offset, int length) {
+        return parseLong(buf, offset, length, "long");
+    }
+
+    private static long parseLong(char[] buf, int offset, int length, String type) {
+        int start = skipLeading(buf, offset, offset + length);
+        int end = skipTrailing(buf, start, offset + length);
+
+        if (start == end) {
+            throw mismatch(buf, offset, length, type);
+        }
+
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        int i = start;
+
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            limit = negative ? Long.MIN_VALUE : limit;
+
+            if (++i == end) {
+                throw mismatch(buf, offset, length, type);
+            }
+        }
+
+        // Accumulates negatively like Long.parseLong, so Long.MIN_VALUE fits.
+        long multiplyLimit = limit / 10;
+        long result = 0;
+
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+
+            if (buf[i] > 0x7f) {
+                return parseLongSlow(buf, start, end, offset, length, type);
+            } else if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw mismatch(buf, offset, length, type);
+            }
+
+            result *= 10;
+
+            if (result < limit + digit) {
+                throw mismatch(buf, offset, length, type);
+            }
+
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses the trimmed range by Long.parseLong, which accepts the
+     * digits of any script.
+     */
+    private static long parseLongSlow(char[] buf, int start, int end, int offset, int length, String type) {
+        try {
+            return Long.parseLong(new String(buf, start, end - start));
+        } catch (NumberFormatException e) {
+            throw mismatch(buf, offset, length, type);
+        }
+    }
+
+    /**
+     * Parses a double from the passed range. Decimal numbers with up to 18
+     * significant digits and a small exponent are computed exactly from the
+     * mantissa, any other input is delegated to Double.parseDouble.
+     *
+     * @param buf <char[]>
+     * @param offset <int>
+     * @param length <int>
+     * @return <double>
+     */
+    static double parseDouble(char[] buf, int offset, int length) {
+        int start = skipLeading(buf, offset, offset + length);
+        int end = skipTrailing(buf, start, offset + length);
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i++] == '-';
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        for (; i < end; i++) {
+            char c = buf[i];
+
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > 18) {
+                        return parseSlow(buf, offset, length);
+                    }
+
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+
+                if (seenPoint) {
+                    scale--;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!seenDigit) {
+            return parseSlow(buf, offset, length);
+        }
+
+        if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+            int exponent = 0;
+            boolean negativeExponent = false;
+
+            if (++i < end && (buf[i] == '-' || buf[i] == '+')) {
+                negativeExponent = buf[i++] == '-';
+            }
+
+            if (i == end) {
+                throw mismatch(buf, offset, length, "double");
+            }
+
+            for (; i < end; i++) {
+                int digit = buf[i] - '0';
+
+                if (digit < 0 || digit > 9 || exponent > 1000) {
+                    return parseSlow(buf, offset, length);
+                }
+
+                exponent = exponent * 10 + digit;
+            }
+
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if (i != end || mantissa > MAX_EXACT_MANTISSA || scale < -22 || scale > 22) {
+            return parseSlow(buf, offset, length);
+        }
+
+        double value = scale < 0
+                ? mantissa / POWERS_OF_TEN[-scale]
+                : mantissa * POWERS_OF_TEN[scale];
+
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(char[] buf, int offset, int length) {
+        try {
+            return Double.parseDouble(new String(buf, offset, length));
+        } catch (NumberFormatException e) {
+            throw mismatch(buf, offset, length, "double");
+        }
+    }
+
+    /**
+     * Parses a boolean from the passed range. Only "true" and "false" are
+     * accepted, the case is ignored.
+     *
+     * @param buf <char[]>
+     * @param offset <int>
+     * @param length <int>
+     * @return <boolean>
+     */
+    static boolean parseBoolean(char[] buf, int offset, int length) {
+        int start = skipLeading(buf, offset, offset + length);
+        int end = skipTrailing(buf, start, offset + length);
+
+        if (matches(buf, start, end, "true")) {
+            return true;
+        } else if (matches(buf, start, end, "false")) {
+            return false;
+        }
+
+        throw mismatch(buf, offset, length, "boolean");
+    }
+
+    private static boolean matches(char[] buf, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(buf[start + i]) != word.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int skipLeading(char[] buf, int start, int end) {
+        while (start < end && Character.isWhitespace(buf[start])) {
+            start++;
+        }
+
+        return start;
+    }
+
+    private static int skipTrailing(char[] buf, int start, int end) {
+        while (end > start && Character.isWhitespace(buf[end - 1])) {
+            end--;
+        }
+
+        return end;
+    }
+
+    private static InputMismatchException mismatch(char[] buf, int offset, int length, String type) {
+        return new InputMismatchException(
+                "For input \"" + new String(buf, offset, length) + "\": not a valid " + type
+        );
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Passes the characters of the wrapped reader through and appends every
+ * complete line to a SessionRecorder. It is read by a BufferedReader with
+ * a buffer of one character, so only lines, which are consumed by the menu,
+ * are recorded at the time they are consumed.
+ */
+final class RecordingReader extends FilterReader {
+    final private SessionRecorder recorder;
+    final private StringBuilder line = new StringBuilder();
+
+    RecordingReader(Reader in, SessionRecorder recorder) {
+        super(in);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        record(c);
+        return c;
+    }
+
+    @Override
+    public int read(char[] buf, int offset, int length) throws IOException {
+        int count = super.read(buf, offset, length);
+
+        for (int i = 0; i < count; i++) {
+            record(buf[offset + i]);
+        }
+
+        if (count < 0) {
+            record(-1);
+        }
+
+        return count;
+    }
+
+    private void record(int c) throws IOException {
+        if (c == '\n' || c == -1 && line.length() > 0) {
+            int end = line.length() > 0 && line.charAt(line.length() - 1) == '\r' ? line.length() - 1 : line.length();
+            recorder.input(line.substring(0, end));
+            line.setLength(0);
+        } else if (c != -1) {
+            line.append((char) c);
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
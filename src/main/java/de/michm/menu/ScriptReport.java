@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.PrintStream;
+
+/**
+ * Writes the result of every step of a non-interactive run as one line of
+ * JSON, e.g.
+ *
+ * <code>
+ *     {"step":1,"input":"a","option":"Add","status":"ok","result":null,"nanos":81234}
+ * </code>
+ *
+ * The status is one of "ok", "started", "entered", "back", "home", "page",
+ * "ambiguous", "cancelled", "unknown" or "error". In case of an error the
+ * result holds the String of the exception, in case of an async option the
+ * started Job. Without a stream the steps are only counted.
+ */
+class ScriptReport {
+    final private PrintStream out;
+    private int step;
+
+    ScriptReport(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the result of the next step.
+     *
+     * @param input <String>
+     * @param option <String>
+     * @param status <String>
+     * @param result <Object>
+     * @param nanos <long>
+     */
+    void step(String input, String option, String status, Object result, long nanos) {
+        step++;
+
+        if (out == null) {
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(96)
+                .append("{\"step\":").append(step)
+                .append(",\"input\":");
+        quote(line, input);
+        line.append(",\"option\":");
+        quote(line, option);
+        line.append(",\"status\":\"").append(status).append('"')
+                .append(",\"result\":");
+
+        if (result == null || result instanceof Boolean) {
+            line.append(result);
+        } else {
+            quote(line, result.toString());
+        }
+
+        line.append(",\"nanos\":").append(nanos).append('}');
+        out.println(line);
+        out.flush();
+    }
+
+    static void quote(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+
+        line.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+
+        line.append('"');
+    }
+}
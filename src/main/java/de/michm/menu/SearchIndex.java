@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.util.*;
+
+/**
+ * An index of the bigrams and trigrams of the option names. A query is split
+ * into n-grams as well and only the options sharing at least one of them are
+ * scored, so a search takes time proportional to the length of the posting
+ * lists of the query and not to the count of options. Names are padded with
+ * two leading and one trailing blank, queries with one leading blank, so
+ * names starting with the query rank higher.
+ *
+ * A search counts the shared n-grams in scratch arrays of the index, so
+ * the index isn't thread-safe: a search must not run concurrently with
+ * another search or with add and remove.
+ */
+final class SearchIndex {
+    /**
+     * The posting length up to which an n-gram is never considered common.
+     */
+    final static int COMMON = 256;
+
+    final private Map<Long, Postings> postings = new HashMap<>();
+    final private Map<String, Integer> ids = new HashMap<>();
+    private Option[] options = new Option[16];
+    private int[] grams = new int[16];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int size;
+    private int[] scores = new int[16];
+    private int[] touched = new int[16];
+
+    /**
+     * Creates an index of the passed options.
+     *
+     * @param options <Iterable<Option>>
+     */
+    SearchIndex(Iterable<Option> options) {
+        for (Option option : options) {
+            add(option);
+        }
+    }
+
+    /**
+     * Adds an option. Its pattern must not be bound yet.
+     *
+     * @param option <Option>
+     */
+    void add(Option option) {
+        int id = freeCount > 0 ? free[--freeCount] : size++;
+
+        if (id == options.length) {
+            options = Arrays.copyOf(options, id * 2);
+            grams = Arrays.copyOf(grams, id * 2);
+            scores = new int[id * 2];
+            touched = new int[id * 2];
+        }
+
+        Set<Long> keys = grams("  " + option.getName() + " ");
+        options[id] = option;
+        grams[id] = keys.size();
+        ids.put(option.getPattern(), id);
+
+        for (Long key : keys) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Removes an option, if it is indexed.
+     *
+     * @param option <Option>
+     */
+    void remove(Option option) {
+        Integer id = ids.get(option.getPattern());
+
+        if (id == null || !option.equals(options[id])) {
+            return;
+        }
+
+        for (Long key : grams("  " + option.getName() + " ")) {
+            Postings list = postings.get(key);
+
+            if (list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+
+        ids.remove(option.getPattern());
+        options[id] = null;
+
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+
+        free[freeCount++] = id;
+    }
+
+    /**
+     * Returns up to limit options, whose names are most similar to the
+     * query. They are ranked by the Dice coefficient of the n-grams,
+     * equal scores by the shorter name. N-grams contained in more than
+     * a quarter of the names are ignored, unless the query has only
+     * such n-grams. Throws an IllegalArgumentException if the limit is
+     * negative.
+     *
+     * @param query <String>
+     * @param limit <int>
+     * @return <List<Option>>
+     */
+    List<Option> search(String query, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative: " + limit);
+        } else if (limit == 0) {
+            return new ArrayList<>(0);
+        }
+
+        Set<Long> keys = grams(" " + query);
+        List<Postings> lists = new ArrayList<>(keys.size());
+        int common = Math.max(COMMON, ids.size() / 4);
+        boolean rare = false;
+        int count = 0;
+
+        for (Long key : keys) {
+            Postings list = postings.get(key);
+
+            if (list != null) {
+                lists.add(list);
+                rare |= list.size <= common;
+            }
+        }
+
+        // N-grams most names contain don't tell them apart, but scanning
+        // their long postings would dominate the search.
+        if (rare) {
+            lists.removeIf(list -> list.size > common);
+        }
+
+        for (Postings list : lists) {
+            for (int i = 0; i < list.size; i++) {
+                int id = list.ids[i];
+
+                if (scores[id]++ == 0) {
+                    touched[count++] = id;
+                }
+            }
+        }
+
+        try {
+            return rank(keys.size(), count, limit);
+        } finally {
+            // The scores have to be cleared for the next search, even if ranking failed.
+            for (int i = 0; i < count; i++) {
+                scores[touched[i]] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns up to limit of the touched options with the best Dice
+     * coefficient.
+     *
+     * @param queryGrams <int>
+     * @param count <int>
+     * @param limit <int>
+     * @return <List<Option>>
+     */
+    private List<Option> rank(int queryGrams, int count, int limit) {
+        int[] best = new int[Math.min(limit, count)];
+        double[] rank = new double[best.length];
+        int found = 0;
+
+        for (int i = 0; i < count; i++) {
+            int id = touched[i];
+            // All n-grams of the query count, also the ones no name contains.
+            double dice = 2.0 * scores[id] / (queryGrams + grams[id]);
+
+            int j = found < best.length ? found++ : best.length;
+
+            while (j > 0 && better(dice, id, rank[j - 1], best[j - 1])) {
+                if (j < best.length) {
+                    best[j] = best[j - 1];
+                    rank[j] = rank[j - 1];
+                }
+
+                j--;
+            }
+
+            if (j < best.length) {
+                best[j] = id;
+                rank[j] = dice;
+            }
+        }
+
+        List<Option> result = new ArrayList<>(found);
+
+        for (int i = 0; i < found; i++) {
+            result.add(options[best[i]]);
+        }
+
+        return result;
+    }
+
+    private boolean better(double dice, int id, double otherDice, int other) {
+        if (dice != otherDice) {
+            return dice > otherDice;
+        }
+
+        return options[id].getName().length() < options[other].getName().length();
+    }
+
+    /**
+     * Returns the distinct bigrams and trigrams of the lower case text, each
+     * packed into a long. A bigram is tagged by the bit above its characters,
+     * so it differs from any trigram.
+     *
+     * @param text <String>
+     * @return <Set<Long>>
+     */
+    private static Set<Long> grams(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<Long> keys = new HashSet<>();
+
+        for (int i = 0; i + 1 < lower.length(); i++) {
+            long bigram = (long) lower.charAt(i) << 16 | lower.charAt(i + 1);
+            keys.add(1L << 48 | bigram);
+
+            if (i + 2 < lower.length()) {
+                keys.add(bigram << 16 | lower.charAt(i + 2));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * The ids of the options, whose names contain an n-gram.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
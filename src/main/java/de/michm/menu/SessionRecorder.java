@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SessionRecorder appends what happens in the menu loop to a binary
+ * journal: every line of input, which is read by the menu or its options,
+ * and the outcome of every step. The journal is replayed by SessionReplay.
+ *
+ * The file starts with the magic bytes "AMJ1", followed by the records.
+ * A record is prefixed by its length as int and consists of its type as
+ * byte, the time in milliseconds since the epoch as long and its fields.
+ * Strings are stored as length prefixed UTF-8, null as length -1.
+ *
+ * <code>
+ *     RUN:   interactive as byte
+ *     INPUT: line
+ *     STEP:  input, option, status, result, nanos as long
+ * </code>
+ *
+ * The records are buffered and written through a FileChannel after
+ * every step, so a crashed session loses at most the current step.
+ */
+public final class SessionRecorder implements Closeable {
+    final static byte[] MAGIC = {'A', 'M', 'J', '1'};
+    final static byte INPUT = 1;
+    final static byte STEP = 2;
+    final static byte RUN = 3;
+
+    /**
+     * Encodes a null String. It is compared by identity.
+     */
+    final private static byte[] NULL = new byte[0];
+
+    final private FileChannel channel;
+    final private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Opens the passed journal. Records are appended to an existing one.
+     *
+     * @param file <Path>
+     */
+    public SessionRecorder(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+
+        if (channel.size() == 0) {
+            buffer.put(MAGIC);
+        }
+    }
+
+    /**
+     * Appends the start of a run of the top menu.
+     *
+     * @param interactive <boolean>
+     */
+    synchronized void run(boolean interactive) throws IOException {
+        begin(RUN, 1);
+        buffer.put((byte) (interactive ? 1 : 0));
+    }
+
+    /**
+     * Appends a line of input.
+     *
+     * @param line <String>
+     */
+    synchronized void input(String line) throws IOException {
+        byte[] text = bytes(line);
+        begin(INPUT, 4 + text.length);
+        putString(text);
+    }
+
+    /**
+     * Appends the outcome of a step and writes the buffered records.
+     *
+     * @param input <String>
+     * @param option <String>
+     * @param status <String>
+     * @param result <Object>
+     * @param nanos <long>
+     */
+    synchronized void step(String input, String option, String status, Object result, long nanos) throws IOException {
+        byte[] inputText = bytes(input);
+        byte[] optionText = bytes(option);
+        byte[] statusText = bytes(status);
+        byte[] resultText = bytes(result != null ? result.toString() : null);
+
+        begin(STEP, 16 + inputText.length + optionText.length + statusText.length + resultText.length + 8);
+        putString(inputText);
+        putString(optionText);
+        putString(statusText);
+        putString(resultText);
+        buffer.putLong(nanos);
+        flush();
+    }
+
+    /**
+     * Starts a record of the passed type with the passed length of its fields.
+     *
+     * @param type <byte>
+     * @param length <int>
+     */
+    private void begin(byte type, int length) throws IOException {
+        int size = 4 + 1 + 8 + length;
+
+        if (buffer.remaining() < size) {
+            flush();
+        }
+
+        if (buffer.capacity() < size) {
+            throw new IOException("The record of " + size + " bytes exceeds the buffer.");
+        }
+
+        buffer.putInt(1 + 8 + length).put(type).putLong(System.currentTimeMillis());
+    }
+
+    private void putString(byte[] text) {
+        if (text == NULL) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(text.length).put(text);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : NULL;
+    }
+
+    /**
+     * Writes the buffered records to the journal.
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Replays a journal written by a SessionRecorder. The recorded lines of
+ * input are fed into a menu at full speed. The menu is neither rendered
+ * nor prints prompts, but it waits for return like the recorded session,
+ * if that was interactive. The journal is streamed, so sessions of any
+ * length can be replayed, e.g. to load test a menu.
+ *
+ * Each replayed step is compared with the recorded one by its input, option
+ * and status. The Result tells how many steps differ and describes them.
+ *
+ * A SessionRecorder appends to its journal, so a journal may hold several
+ * sessions. Each of them is replayed in a fresh menu of a MenuFactory.
+ *
+ * <code>
+ *     SessionReplay.Result result = SessionReplay.replay(Path.of("session.amj"), io -> new App("App", io), null);
+ *     assert result.getMismatches() == 0 : result.getDifferences();
+ * </code>
+ */
+public final class SessionReplay {
+    /**
+     * The count of differences described by the Result.
+     */
+    final static int MAX_DIFFERENCES = 100;
+
+    private SessionReplay() {}
+
+    /**
+     * Replays the passed journal of a single session in the menu. Throws
+     * an IOException if the journal holds more than one session, which
+     * have to be replayed by a MenuFactory. The result of each step is
+     * written as line of JSON to the report stream, if it isn't null.
+     *
+     * @param journal <Path>
+     * @param menu <AssmusMenu>
+     * @param report <PrintStream>
+     * @return <Result>
+     */
+    public static Result replay(@NotNull Path journal, @NotNull AssmusMenu menu, PrintStream report) throws IOException {
+        return replay(journal, menu, null, report);
+    }
+
+    /**
+     * Replays each session of the passed journal in a fresh menu of the
+     * factory. Its TerminalIO has no input and discards the output. The
+     * menu is closed at the end of its session. The result of each step
+     * is written as line of JSON to the report stream, if it isn't null.
+     *
+     * @param journal <Path>
+     * @param factory <MenuFactory>
+     * @param report <PrintStream>
+     * @return <Result>
+     */
+    public static Result replay(@NotNull Path journal, @NotNull MenuFactory factory, PrintStream report) throws IOException {
+        return replay(journal, null, factory, report);
+    }
+
+    private static Result replay(Path journal, AssmusMenu menu, MenuFactory factory, PrintStream report) throws IOException {
+        Result result = new Result();
+        Comparison comparison = new Comparison(report, result);
+        long start = System.nanoTime();
+
+        try (JournalReader input = new JournalReader(open(journal), result)) {
+            // Every session starts with its mode
+            for (int session = 1; input.nextRun(); session++) {
+                if (factory != null) {
+                    try (AssmusMenu fresh = factory.create(TerminalIO.of(InputStream.nullInputStream(),
+                            OutputStream.nullOutputStream(), false))) {
+                        fresh.runScriptReport(input, comparison, input.interactive);
+                    } catch (IOException | RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException("Unable to replay session " + session + " of " + journal, e);
+                    }
+                } else if (session == 1) {
+                    menu.runScriptReport(input, comparison, input.interactive);
+                } else {
+                    throw new IOException(journal + " holds more than one session, it has to be replayed by a MenuFactory.");
+                }
+
+                // Steps recorded after the menu has quit
+                while (input.next()) {
+                    result.compare();
+                }
+
+                result.finish();
+            }
+        }
+
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Writes every record of the passed journal as line of JSON, e.g.
+     *
+     * <code>
+     *     {"time":1666086400000,"input":"a"}
+     *     {"time":1666086400120,"step":1,"input":"a","option":"Add","status":"ok","result":null,"nanos":81234}
+     * </code>
+     *
+     * @param journal <Path>
+     * @param out <PrintStream>
+     */
+    public static void dump(@NotNull Path journal, @NotNull PrintStream out) throws IOException {
+        try (DataInputStream in = open(journal)) {
+            int step = 0;
+            Record record;
+
+            while ((record = Record.read(in)) != null) {
+                StringBuilder line = new StringBuilder(96).append("{\"time\":").append(record.time);
+
+                if (record.type == SessionRecorder.RUN) {
+                    line.append(",\"run\":").append(record.nanos != 0 ? "\"interactive\"" : "\"script\"");
+                } else if (record.type == SessionRecorder.INPUT) {
+                    line.append(",\"input\":");
+                    ScriptReport.quote(line, record.input);
+                } else {
+                    line.append(",\"step\":").append(++step).append(",\"input\":");
+                    ScriptReport.quote(line, record.input);
+                    line.append(",\"option\":");
+                    ScriptReport.quote(line, record.option);
+                    line.append(",\"status\":");
+                    ScriptReport.quote(line, record.status);
+                    line.append(",\"result\":");
+                    ScriptReport.quote(line, record.result);
+                    line.append(",\"nanos\":").append(record.nanos);
+                }
+
+                out.println(line.append('}'));
+            }
+        }
+
+        out.flush();
+    }
+
+    private static DataInputStream open(Path journal) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal), 1 << 16));
+        byte[] magic = new byte[SessionRecorder.MAGIC.length];
+
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            // An empty journal
+            return in;
+        }
+
+        if (!Arrays.equals(magic, SessionRecorder.MAGIC)) {
+            in.close();
+            throw new IOException(journal + " is no session journal.");
+        }
+
+        return in;
+    }
+
+    /**
+     * Writes the replayed steps to the report and hands them to the Result.
+     */
+    private static final class Comparison extends ScriptReport {
+        final private Result result;
+
+        Comparison(PrintStream report, Result result) {
+            super(report);
+            this.result = result;
+        }
+
+        @Override
+        void step(String input, String option, String status, Object value, long nanos) {
+            super.step(input, option, status, value, nanos);
+            result.steps++;
+            result.replayed.add(new Record(SessionRecorder.STEP, 0, input, option, status, null, nanos));
+            result.compare();
+        }
+    }
+
+    /**
+     * The outcome of a replay.
+     */
+    public static final class Result {
+        final private Queue<Record> recorded = new ArrayDeque<>();
+        final private Queue<Record> replayed = new ArrayDeque<>();
+        final private List<String> differences = new ArrayList<>();
+        private int steps;
+        private int mismatches;
+        private long nanos;
+
+        private Result() {}
+
+        /**
+         * Compares the recorded and replayed steps, which are
+         * both known, and drops them.
+         */
+        private void compare() {
+            while (!recorded.isEmpty() && !replayed.isEmpty()) {
+                Record expected = recorded.poll();
+                Record actual = replayed.poll();
+
+                if (!Objects.equals(expected.input, actual.input) || !Objects.equals(expected.option, actual.option)
+                        || !Objects.equals(expected.status, actual.status)) {
+                    differ(describe(expected) + " was replayed as " + describe(actual));
+                }
+            }
+        }
+
+        /**
+         * Compares the steps at the end of a session. The steps, which
+         * were only recorded or only replayed, differ as well.
+         */
+        private void finish() {
+            compare();
+
+            for (Record expected : recorded) {
+                differ(describe(expected) + " was not replayed");
+            }
+
+            for (Record actual : replayed) {
+                differ(describe(actual) + " was replayed, but not recorded");
+            }
+
+            recorded.clear();
+            replayed.clear();
+        }
+
+        private void differ(String difference) {
+            mismatches++;
+
+            if (differences.size() < MAX_DIFFERENCES) {
+                differences.add(difference);
+            }
+        }
+
+        private static String describe(Record step) {
+            return "\"" + step.input + "\": " + step.option + " " + step.status;
+        }
+
+        /**
+         * Returns the count of replayed steps.
+         *
+         * @return <int>
+         */
+        public int getSteps() {
+            return steps;
+        }
+
+        /**
+         * Returns the count of steps, which differ from the recorded
+         * ones or were only recorded or only replayed.
+         *
+         * @return <int>
+         */
+        public int getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Returns the descriptions of the first differing steps.
+         *
+         * @return <List<String>>
+         */
+        public List<String> getDifferences() {
+            return Collections.unmodifiableList(differences);
+        }
+
+        /**
+         * Returns the time the replay took in nanoseconds.
+         *
+         * @return <long>
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * A record of the journal.
+     */
+    private static final class Record {
+        final private byte type;
+        final private long time;
+        final private String input;
+        final private String option;
+        final private String status;
+        final private String result;
+        final private long nanos;
+
+        Record(byte type, long time, String input, String option, String status, String result, long nanos) {
+            this.type = type;
+            this.time = time;
+            this.input = input;
+            this.option = option;
+            this.status = status;
+            this.result = result;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Reads the next record or returns null at the end of the journal.
+         * Records of unknown types are skipped.
+         *
+         * @param in <DataInputStream>
+         * @return <Record>
+         */
+        static Record read(DataInputStream in) throws IOException {
+            while (true) {
+                int length;
+
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return null;
+                }
+
+                byte type = in.readByte();
+                long time = in.readLong();
+
+                if (type == SessionRecorder.RUN) {
+                    return new Record(type, time, null, null, null, null, in.readByte());
+                } else if (type == SessionRecorder.INPUT) {
+                    return new Record(type, time, string(in), null, null, null, 0);
+                } else if (type == SessionRecorder.STEP) {
+                    return new Record(type, time, string(in), string(in), string(in), string(in), in.readLong());
+                }
+
+                in.skipNBytes(length - 9);
+            }
+        }
+
+        private static String string(DataInputStream in) throws IOException {
+            int length = in.readInt();
+
+            if (length < 0) {
+                return null;
+            }
+
+            byte[] text = new byte[length];
+            in.readFully(text);
+            return new String(text, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Streams the recorded lines of input of a session. The recorded steps,
+     * which are passed on the way, are handed to the Result. The input ends
+     * at the start of the next session.
+     */
+    private static final class JournalReader extends Reader {
+        final private DataInputStream in;
+        final private Result result;
+        private String line = "";
+        private int position = 1;
+        private boolean interactive;
+        private boolean pending;
+        private boolean pendingInteractive;
+
+        JournalReader(DataInputStream in, Result result) {
+            this.in = in;
+            this.result = result;
+        }
+
+        /**
+         * Skips the rest of the current session and starts the next one.
+         * Returns false at the end of the journal.
+         *
+         * @return <boolean>
+         */
+        boolean nextRun() throws IOException {
+            while (next()) {
+                // The input the menu didn't read
+            }
+
+            if (!pending) {
+                return false;
+            }
+
+            pending = false;
+            interactive = pendingInteractive;
+            line = "";
+            position = 1;
+            return true;
+        }
+
+        /**
+         * Reads the next record of the session. Returns false at the
+         * end of the session or the journal.
+         *
+         * @return <boolean>
+         */
+        boolean next() throws IOException {
+            Record record = pending ? null : Record.read(in);
+
+            if (record == null) {
+                return false;
+            } else if (record.type == SessionRecorder.STEP) {
+                result.recorded.add(record);
+            } else if (record.type == SessionRecorder.RUN) {
+                pending = true;
+                pendingInteractive = record.nanos != 0;
+                return false;
+            } else {
+                line = record.input;
+                position = 0;
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read(char[] buf, int offset, int length) throws IOException {
+            // The line is followed by a line feed.
+            while (position > line.length()) {
+                if (!next()) {
+                    return -1;
+                }
+            }
+
+            int count = Math.min(length, line.length() + 1 - position);
+
+            for (int i = 0; i < count; i++, position++) {
+                buf[offset + i] = position < line.length() ? line.charAt(position) : '\n';
+            }
+
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
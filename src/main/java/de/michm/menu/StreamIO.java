@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The TerminalIO of an InputStream and an OutputStream.
+ */
+final class StreamIO implements TerminalIO {
+    final private BufferedReader reader;
+    final private PrintStream out;
+    final private Charset charset;
+    final private boolean interactive;
+    final private boolean ansi;
+    final private boolean system;
+
+    private StreamIO(BufferedReader reader, PrintStream out, Charset charset,
+                     boolean interactive, boolean ansi, boolean system) {
+        this.reader = reader;
+        this.out = out;
+        this.charset = charset;
+        this.interactive = interactive;
+        this.ansi = ansi;
+        this.system = system;
+    }
+
+    /**
+     * Creates a UTF-8 encoded TerminalIO of the passed streams.
+     *
+     * @param in <InputStream>
+     * @param out <OutputStream>
+     * @param terminal <boolean>
+     */
+    StreamIO(InputStream in, OutputStream out, boolean terminal) {
+        this(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+                new PrintStream(new BufferedOutputStream(out), false, StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8,
+                terminal,
+                terminal,
+                false
+        );
+    }
+
+    /**
+     * Returns a TerminalIO of stdin and stdout. Neither System.in
+     * nor System.out is closed with it.
+     *
+     * @return <StreamIO>
+     */
+    static StreamIO system() {
+        return new StreamIO(
+                new BufferedReader(new InputStreamReader(System.in)),
+                System.out,
+                Terminal.STDOUT.charset(),
+                Terminal.isStdinInteractive(),
+                Terminal.STDOUT.isAnsi(),
+                true
+        );
+    }
+
+    @Override
+    public BufferedReader reader() {
+        return reader;
+    }
+
+    @Override
+    public PrintStream out() {
+        return out;
+    }
+
+    @Override
+    public Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    @Override
+    public boolean isAnsi() {
+        return ansi;
+    }
+
+    @Override
+    public int rows() {
+        return system ? Terminal.rows() : 0;
+    }
+
+    @Override
+    public int refreshRows() {
+        return system ? Terminal.refreshRows() : 0;
+    }
+
+    @Override
+    public boolean setRaw(boolean raw) {
+        return system && ansi && interactive && Terminal.setRaw(raw);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The pending output is flushed before a shared connection is closed by the reader.
+        if (!system) {
+            out.close();
+            reader.close();
+        } else {
+            // Stdin isn't closed either, a pending InputMonitor may still wait on it.
+            out.flush();
+        }
+    }
+}
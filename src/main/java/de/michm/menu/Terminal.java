@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.Console;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Terminal class controls the screen by writing ANSI escape sequences
+ * directly to the output stream. The capabilities are detected once, so
+ * clearing or repositioning never spawns a process. If the output is not
+ * a terminal (e.g. a pipe or a file) every operation is a no-op.
+ */
+final class Terminal {
+    /**
+     * Moves the cursor home and erases the whole screen.
+     */
+    final static byte[] CLEAR = "\033[H\033[2J".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Overrides the detection of an interactive stdin, if it is set to true or false.
+     */
+    final static String INTERACTIVE_PROPERTY = "assmus.menu.interactive";
+
+    /**
+     * Console.isTerminal() of Java 22+, or null.
+     */
+    final private static MethodHandle IS_TERMINAL = findIsTerminal();
+
+    /**
+     * The Terminal of stdout, detected on class initialization.
+     */
+    final static Terminal STDOUT = new Terminal(System.out, detect(), stdoutCharset());
+
+    final private PrintStream out;
+    final private boolean ansi;
+    final private Charset charset;
+
+    /**
+     * The constructor expects the stream the escape sequences are written
+     * to, whether it is an ANSI capable terminal and the charset of the stream.
+     *
+     * @param out <PrintStream>
+     * @param ansi <boolean>
+     * @param charset <Charset>
+     */
+    Terminal(PrintStream out, boolean ansi, Charset charset) {
+        this.out = out;
+        this.ansi = ansi;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns true if stdout is attached to a terminal, which
+     * understands ANSI escape sequences.
+     *
+     * @return <boolean>
+     */
+    private static boolean detect() {
+        if (!isTerminal(System.console())) {
+            return false;
+        }
+
+        final String term = System.getenv("TERM");
+
+        if (term != null) {
+            return !term.isEmpty() && !term.equals("dumb");
+        }
+
+        // The Windows Terminal and ConEmu handle escape sequences without TERM.
+        return System.getenv("WT_SESSION") != null || System.getenv("ConEmuANSI") != null;
+    }
+
+    private static MethodHandle findIsTerminal() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Console.class, "isTerminal",
+                    MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the passed Console is attached to a terminal on both
+     * stdin and stdout. Before Java 22 a Console only exists in this case,
+     * since then it has to be asked by Console.isTerminal().
+     *
+     * @param console <Console>
+     * @return <boolean>
+     */
+    private static boolean isTerminal(Console console) {
+        if (console == null || IS_TERMINAL == null) {
+            return console != null;
+        }
+
+        try {
+            return (boolean) IS_TERMINAL.invokeExact(console);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if a user types the input on stdin, no matter where
+     * stdout goes. It can be forced by the system property
+     * assmus.menu.interactive. Detected once.
+     *
+     * @return <boolean>
+     */
+    static boolean isStdinInteractive() {
+        return Stdin.INTERACTIVE;
+    }
+
+    private static boolean detectStdin() {
+        String forced = System.getProperty(INTERACTIVE_PROPERTY);
+
+        if (forced != null) {
+            return Boolean.parseBoolean(forced.trim());
+        } else if (isTerminal(System.console())) {
+            return true;
+        }
+
+        // Stdout is redirected, or the JVM can't tell. Asks the shell about stdin only.
+        try {
+            Process process = new ProcessBuilder("test", "-t", "0")
+                    .redirectInput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            // No test available, e.g. on Windows
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Detects whether stdin is interactive on first use.
+     */
+    private static final class Stdin {
+        final static boolean INTERACTIVE = detectStdin();
+    }
+
+    /**
+     * The count of rows detected last, or -1 before the first detection.
+     */
+    private static volatile int rows = -1;
+
+    /**
+     * Returns the count of rows of the terminal stdin is attached to, or 0 if
+     * it is unknown. It is taken from the environment variable LINES or else
+     * queried once by "stty size", so redraws never spawn a process.
+     *
+     * @return <int>
+     */
+    static int rows() {
+        int rows = Terminal.rows;
+        return rows >= 0 ? rows : refreshRows();
+    }
+
+    /**
+     * Detects the count of rows again, e.g. after the terminal was resized.
+     * Java has no handler of SIGWINCH, so it has to be polled. It spawns
+     * stty, unless LINES is set.
+     *
+     * @return <int>
+     */
+    static int refreshRows() {
+        return rows = detectRows();
+    }
+
+    private static int detectRows() {
+        try {
+            String lines = System.getenv("LINES");
+
+            if (lines != null) {
+                return Integer.parseInt(lines.trim());
+            }
+        } catch (NumberFormatException ignored) {
+            // Falls back to stty
+        }
+
+        String size = stty("size");
+
+        try {
+            return size != null && !size.isEmpty() ? Integer.parseInt(size.split("\\s+")[0]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The settings of the terminal before the raw mode was entered, or null.
+     */
+    private static String cooked;
+    private static boolean restoredOnExit;
+
+    /**
+     * Switches the terminal stdin is attached to into the raw mode, in which
+     * each key is passed on when it is typed instead of after Enter, or back
+     * into the mode it was in before. The typed keys are still echoed. Returns
+     * false if the mode can't be changed, e.g. on Windows. The former mode is
+     * also restored, if the JVM exits before the raw mode is left.
+     *
+     * @param raw <boolean>
+     * @return <boolean>
+     */
+    static synchronized boolean setRaw(boolean raw) {
+        if (raw == (cooked != null)) {
+            return true;
+        } else if (!raw) {
+            String settings = cooked;
+            cooked = null;
+            return stty(settings) != null;
+        }
+
+        String settings = stty("-g");
+
+        if (settings == null || stty("-icanon", "min", "1", "time", "0") == null) {
+            return false;
+        }
+
+        cooked = settings;
+
+        if (!restoredOnExit) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> setRaw(false), "terminal-restore"));
+            restoredOnExit = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs stty with the passed arguments against the terminal stdin is
+     * attached to and returns its output, or null if it failed.
+     *
+     * @param args <String[]>
+     * @return <String>
+     */
+    private static String stty(String ... args) {
+        File tty = new File("/dev/tty");
+
+        if (!isStdinInteractive() || !tty.exists()) {
+            return null;
+        }
+
+        List<String> command = new ArrayList<>(args.length + 1);
+        command.add("stty");
+        command.addAll(Arrays.asList(args));
+
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectInput(tty)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+
+            if (process.waitFor() == 0) {
+                return output;
+            }
+        } catch (IOException e) {
+            // No stty available, e.g. on Windows
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the charset System.out encodes its text with.
+     *
+     * @return <Charset>
+     */
+    private static Charset stdoutCharset() {
+        String encoding = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+
+        try {
+            return encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+    /**
+     * Returns the charset text has to be encoded with before
+     * it is written as bytes.
+     *
+     * @return <Charset>
+     */
+    Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Returns true if escape sequences are written.
+     *
+     * @return <boolean>
+     */
+    boolean isAnsi() {
+        return ansi;
+    }
+
+    /**
+     * Clears the screen and moves the cursor to the upper left corner.
+     */
+    void clear() {
+        if (ansi) {
+            MenuEvents.Clear event = new MenuEvents.Clear();
+
+            event.begin();
+            out.write(CLEAR, 0, CLEAR.length);
+            out.flush();
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.bytes = CLEAR.length;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * The TerminalIO connects an AssmusMenu with its user. The menu reads the
+ * selections and answers from its reader and writes the rendered menu,
+ * prompts and errors to its output stream. By default, a menu is connected
+ * to stdin and stdout, but any other source like a socket, a channel or
+ * the in-memory MemoryIO can be passed to the constructor of the menu.
+ *
+ * The menu flushes the output once per frame, after the menu and the
+ * prompt have been written.
+ *
+ * <code>
+ *     App app = new App("Awesome App", TerminalIO.of(socket.getInputStream(), socket.getOutputStream(), true));
+ * </code>
+ */
+public interface TerminalIO extends Closeable {
+    /**
+     * Returns the reader of the user input.
+     *
+     * @return <BufferedReader>
+     */
+    BufferedReader reader();
+
+    /**
+     * Returns the stream the output is written to.
+     *
+     * @return <PrintStream>
+     */
+    PrintStream out();
+
+    /**
+     * Returns the charset of the output stream.
+     *
+     * @return <Charset>
+     */
+    Charset charset();
+
+    /**
+     * Returns true if a user is typing the input, so
+     * the menu is rendered and prompts are printed.
+     *
+     * @return <boolean>
+     */
+    boolean isInteractive();
+
+    /**
+     * Returns true if the output is shown by a terminal,
+     * which understands ANSI escape sequences.
+     *
+     * @return <boolean>
+     */
+    boolean isAnsi();
+
+    /**
+     * Returns the count of rows of the terminal, or 0 if it is unknown.
+     * The menu renders only as many options as fit on the screen.
+     *
+     * @return <int>
+     */
+    default int rows() {
+        return 0;
+    }
+
+    /**
+     * Returns the count of rows like rows(), but queries it again, e.g.
+     * after the terminal was resized. It may be expensive, so the menu
+     * calls it at most once per selection in the raw mode.
+     *
+     * @return <int>
+     */
+    default int refreshRows() {
+        return rows();
+    }
+
+    /**
+     * Switches the terminal into the raw mode, in which each key is read
+     * when it is typed, or back. Returns false if the raw mode isn't
+     * supported, which is the default.
+     *
+     * @param raw <boolean>
+     * @return <boolean>
+     */
+    default boolean setRaw(boolean raw) {
+        return false;
+    }
+
+    /**
+     * Returns a TerminalIO of stdin and stdout. Its capabilities
+     * are detected once at startup.
+     *
+     * @return <TerminalIO>
+     */
+    static TerminalIO system() {
+        return StreamIO.system();
+    }
+
+    /**
+     * Returns a UTF-8 encoded TerminalIO of the passed streams. If terminal is
+     * true, the peer is handled as interactive ANSI terminal. The output is
+     * buffered and flushed once per redraw or prompt.
+     *
+     * @param in <InputStream>
+     * @param out <OutputStream>
+     * @param terminal <boolean>
+     * @return <TerminalIO>
+     */
+    static TerminalIO of(InputStream in, OutputStream out, boolean terminal) {
+        return new StreamIO(in, out, terminal);
+    }
+
+    /**
+     * Returns a UTF-8 encoded TerminalIO of the passed socket. The socket
+     * is closed with the TerminalIO. If terminal is true, the peer is
+     * handled as interactive ANSI terminal.
+     *
+     * @param socket <Socket>
+     * @param terminal <boolean>
+     * @return <TerminalIO>
+     */
+    static TerminalIO of(Socket socket, boolean terminal) throws IOException {
+        return new StreamIO(socket.getInputStream(), socket.getOutputStream(), terminal);
+    }
+
+    /**
+     * Returns a UTF-8 encoded TerminalIO of the passed blocking channel, e.g.
+     * a SocketChannel. Reading and writing don't block each other. If terminal
+     * is true, the peer is handled as interactive ANSI terminal.
+     *
+     * @param channel <ByteChannel>
+     * @param terminal <boolean>
+     * @return <TerminalIO>
+     */
+    static TerminalIO of(ByteChannel channel, boolean terminal) {
+        return new ChannelIO(channel, terminal);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.michm.menu;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors for background work. On a JVM with virtual threads
+ * every task runs on its own virtual thread, otherwise on a cached pool of
+ * daemon threads, so the library still runs on Java 18.
+ */
+final class Threads {
+    final private static MethodHandle VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private Threads() {}
+
+    private static MethodHandle findVirtualExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a new executor, which starts a virtual thread per task
+     * if possible. Threads of the fallback pool are named after the
+     * passed name.
+     *
+     * @param name <String>
+     * @return <ExecutorService>
+     */
+    static ExecutorService newExecutor(String name) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invokeExact();
+            } catch (UnsupportedOperationException e) {
+                // Virtual threads are a disabled preview feature of this JVM.
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArgumentsTest {
+    @Test
+    void wordsAreSplitAndQuotesGrouped() {
+        assertEquals(List.of("42", "bob"), Arguments.parse("  42\tbob ").asList());
+        assertEquals(List.of("Bob Smith", "42"), Arguments.parse(" \"Bob Smith\" 42").asList());
+        assertEquals(List.of("ab cd"), Arguments.parse(" a\"b c\"d").asList());
+        assertEquals(List.of("", "x"), Arguments.parse(" \"\" x").asList());
+        assertTrue(Arguments.parse("   ") == Arguments.NONE);
+    }
+
+    @Test
+    void unterminatedQuoteIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Arguments.parse(" \"Bob 42"));
+        assertTrue(e.getMessage().contains("\"Bob 42"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Arguments.parse(" \"a\" \""));
+    }
+
+    @Test
+    void argumentsAreConverted() {
+        Arguments arguments = Arguments.parse(" 42 bob");
+
+        assertEquals(2, arguments.size());
+        assertEquals(Integer.valueOf(42), arguments.get(0, Integer.class));
+        assertEquals(Integer.valueOf(42), arguments.get(0, int.class));
+        assertEquals("bob", arguments.get(1));
+        assertNull(arguments.get(2));
+        assertNull(arguments.get(-1, Integer.class));
+        assertThrows(IllegalArgumentException.class, () -> arguments.get(1, Integer.class));
+    }
+
+    @Test
+    void unterminatedQuoteIsTypedAgain() throws Exception {
+        MemoryIO io = new MemoryIO("a \"Bob 42\na \"Bob Smith\" 42\nq\n", true);
+
+        try (UserMenu menu = new UserMenu(io)) {
+            menu.run();
+
+            assertNull(menu.failure());
+            assertEquals(List.of("Bob Smith:42"), menu.added);
+        }
+
+        assertTrue(io.getOutput().contains("isn't closed"), io.getOutput());
+    }
+
+    @Test
+    void unterminatedQuoteStopsScripts() throws Exception {
+        try (UserMenu menu = new UserMenu(new MemoryIO("a \"Bob 42\nq\n", false))) {
+            menu.run();
+
+            assertTrue(menu.failure() instanceof IllegalArgumentException, String.valueOf(menu.failure()));
+            assertTrue(menu.added.isEmpty());
+        }
+    }
+
+    static class UserMenu extends AssmusMenu {
+        final private List<String> added = new ArrayList<>();
+
+        UserMenu(TerminalIO io) throws Exception {
+            super("Users", io);
+        }
+
+        @MenuOption(name = "Add", pattern = "a")
+        void add(String name, int age) {
+            added.add(name + ":" + age);
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
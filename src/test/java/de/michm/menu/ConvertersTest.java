@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.rmi.AlreadyBoundException;
+import java.time.DayOfWeek;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvertersTest {
+    @Test
+    void primitivesAreConvertedToTheirWrappers() throws Exception {
+        assertEquals(5, (int) Converters.convert(int.class, "5"));
+        assertEquals(5L, (long) Converters.convert(long.class, "5"));
+        assertEquals(2.5, Converters.convert(double.class, "2.5"));
+        assertEquals(true, Converters.convert(boolean.class, "true"));
+        assertEquals('x', (char) Converters.convert(char.class, "x"));
+        assertEquals(Integer.valueOf(7), Converters.convert(Integer.class, "7"));
+    }
+
+    @Test
+    void enumsAreConvertedByTheirName() throws Exception {
+        assertEquals(DayOfWeek.MONDAY, Converters.convert(DayOfWeek.class, " MONDAY "));
+        assertThrows(IllegalArgumentException.class, () -> Converters.convert(DayOfWeek.class, "monday"));
+        assertTrue(Converters.has(DayOfWeek.class));
+    }
+
+    @Test
+    void unknownTypesHaveNoConverter() {
+        assertFalse(Converters.has(Object.class));
+        assertThrows(IllegalArgumentException.class, () -> Converters.convert(Object.class, "x"));
+    }
+
+    @Test
+    void registeredConvertersTakePrecedence() throws Exception {
+        try {
+            AssmusMenu.registerConverter(short.class, input -> Short.parseShort(input, 16));
+
+            // The primitive and its wrapper share the Converter.
+            assertEquals((short) 16, (short) Converters.convert(short.class, "10"));
+            assertEquals(Short.valueOf((short) 255), Converters.convert(Short.class, "ff"));
+        } finally {
+            AssmusMenu.registerConverter(Short.class, Short::valueOf);
+        }
+
+        assertEquals((short) 10, (short) Converters.convert(short.class, "10"));
+    }
+
+    @Test
+    void menuReadsPrimitives() throws Exception {
+        MemoryIO io = new MemoryIO("r\n42\nq\n", false);
+
+        try (ReadingMenu menu = new ReadingMenu(io)) {
+            menu.run();
+            assertEquals(42, menu.value);
+        }
+    }
+
+    static class ReadingMenu extends AssmusMenu {
+        int value;
+
+        ReadingMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Reading", io);
+        }
+
+        @MenuOption(name = "Read", pattern = "r")
+        void read() {
+            value = read(int.class, "value: ");
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOptionProviderTest {
+    @Test
+    void linesSortedByBytesAreAccepted() throws Exception {
+        // U+E000 is sorted before U+1F600 by its UTF-8 bytes, but not by its UTF-16 chars.
+        Path file = write("a\tfirst\n\uE000\tprivate\n\uD83D\uDE00\tsmiley\n");
+
+        try (FileOptionProvider provider = new FileOptionProvider(file, (menu, pattern, name) -> { })) {
+            assertEquals(1, provider.find("\uE000"));
+            assertEquals(2, provider.find("\uD83D\uDE00"));
+            assertEquals("smiley", provider.name(2));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void unsortedLinesAreRejected() throws Exception {
+        Path file = write("\uD83D\uDE00\tsmiley\n\uE000\tprivate\n");
+
+        try {
+            assertThrows(IllegalArgumentException.class, () -> new FileOptionProvider(file, (menu, pattern, name) -> { }));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void blankLinesAreRejectedAsBlank() throws Exception {
+        for (String text : new String[]{"a\tfirst\n\nb\tsecond\n", "a\tfirst\nb\tsecond\n\n", "a\tfirst\r\n\r\n"}) {
+            Path file = write(text);
+
+            try {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> new FileOptionProvider(file, (menu, pattern, name) -> { }));
+                assertTrue(e.getMessage().endsWith(" is blank"), e.getMessage());
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        Path file = write("\tnameless\n");
+
+        try {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> new FileOptionProvider(file, (menu, pattern, name) -> { }));
+            assertTrue(e.getMessage().endsWith(" has no pattern"), e.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void blocksAreReadConcurrently() throws Exception {
+        int size = FileOptionProvider.BLOCK_LINES * FileOptionProvider.CACHED_BLOCKS * 4;
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < size; i++) {
+            text.append(String.format("c-%05d\tName %d%n", i, i));
+        }
+
+        Path file = write(text.toString());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try (FileOptionProvider provider = new FileOptionProvider(file, (menu, pattern, name) -> { })) {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        int index = (i * 31 + seed * 997) % size;
+                        assertEquals("Name " + index, provider.name(index));
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(String text) throws Exception {
+        Path file = Files.createTempFile("options", ".txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.rmi.AlreadyBoundException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputMonitorTest {
+    @Test
+    void queuedInputIsReadAfterWakeupAndTimeout() throws Exception {
+        PipedOutputStream feed = new PipedOutputStream();
+        InputMonitor monitor = new InputMonitor(new InputStreamReader(new PipedInputStream(feed), StandardCharsets.UTF_8));
+        BufferedReader reader = new BufferedReader(monitor.reader());
+
+        monitor.wakeup();
+        assertEquals(InputMonitor.Signal.WAKEUP, monitor.await(0));
+        assertEquals(InputMonitor.Signal.TIMEOUT, monitor.await(TimeUnit.MILLISECONDS.toNanos(20)));
+
+        feed.write("i\nq\n".getBytes(StandardCharsets.UTF_8));
+        feed.flush();
+
+        assertEquals(InputMonitor.Signal.INPUT, monitor.await(0));
+        assertEquals("i", reader.readLine());
+        assertEquals("q", reader.readLine());
+
+        feed.close();
+        assertEquals(InputMonitor.Signal.INPUT, monitor.await(0));
+        assertNull(reader.readLine());
+        monitor.close();
+    }
+
+    @Test
+    void selectionAfterFailedJobIsNotLost() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            PipedOutputStream feed = new PipedOutputStream();
+            PipedInputStream in = new PipedInputStream(feed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Thread typist = new Thread(() -> {
+                try {
+                    type(feed, "f\n");
+
+                    // The job fails and wakes the menu, which waits for return.
+                    for (long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                         !out.toString(StandardCharsets.UTF_8).contains("Hit return") && System.nanoTime() < end; ) {
+                        Thread.sleep(5);
+                    }
+
+                    type(feed, "\ni\nq\n");
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            try (FailingMenu menu = new FailingMenu(TerminalIO.of(in, out, true))) {
+                typist.start();
+                menu.run();
+                typist.join();
+            }
+
+            String output = out.toString(StandardCharsets.UTF_8);
+            assertTrue(output.contains("failed on purpose"), output);
+            assertTrue(output.contains("INFO"), "The selection after the error was lost:\n" + output);
+        }
+    }
+
+    private static void type(OutputStream feed, String text) throws IOException {
+        feed.write(text.getBytes(StandardCharsets.UTF_8));
+        feed.flush();
+    }
+
+    static class FailingMenu extends AssmusMenu {
+        FailingMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Failing", io);
+        }
+
+        @MenuOption(name = "Fail", pattern = "f", async = true)
+        void fail() throws InterruptedException {
+            Thread.sleep(20);
+            throw new IllegalStateException("failed on purpose");
+        }
+
+        @MenuOption(name = "Info", pattern = "i")
+        void info() {
+            out().println("INFO");
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
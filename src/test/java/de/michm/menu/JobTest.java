@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.rmi.AlreadyBoundException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobTest {
+    @Test
+    void scriptWaitsForRunningJobs() throws Exception {
+        String output = run("f\n");
+        assertTrue(output.contains("failed on purpose"), output);
+    }
+
+    @Test
+    void subMenuHandsRunningJobsToParent() throws Exception {
+        String output = run("s\nf\n..\n");
+        assertTrue(output.contains("failed on purpose"), output);
+    }
+
+    private static String run(String script) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TerminalIO io = TerminalIO.of(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), out, false);
+
+        try (SlowMenu menu = new SlowMenu(io)) {
+            menu.run();
+        }
+
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    static class SlowMenu extends AssmusMenu {
+        SlowMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Slow", io);
+        }
+
+        @MenuOption(name = "Fail", pattern = "f", async = true)
+        void fail() throws InterruptedException {
+            Thread.sleep(100);
+            throw new IllegalStateException("failed on purpose");
+        }
+
+        @MenuOption(name = "Sub", pattern = "s")
+        static class Sub extends AssmusMenu {
+            Sub(TerminalIO io) throws AlreadyBoundException {
+                super("Sub", io);
+            }
+
+            @MenuOption(name = "Fail", pattern = "f", async = true)
+            void fail() throws InterruptedException {
+                Thread.sleep(100);
+                throw new IllegalStateException("failed on purpose");
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.AlreadyBoundException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuEventsTest {
+    @Test
+    void runningMenuRecordsItsEvents() throws Exception {
+        Path file = Files.createTempFile("menu", ".jfr");
+        List<String> names = new ArrayList<>();
+
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"Dispatch", "Invoke", "Render", "Clear"}) {
+                recording.enable("de.michm.menu." + name).withThreshold(Duration.ZERO);
+            }
+
+            recording.start();
+
+            try (QuitMenu menu = new QuitMenu(new MemoryIO("q\n", true))) {
+                menu.run();
+            }
+
+            recording.stop();
+            recording.dump(file);
+
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                names.add(event.getEventType().getName());
+
+                if (event.getEventType().getName().equals("de.michm.menu.Clear")) {
+                    assertEquals((long) Terminal.CLEAR.length, event.getLong("bytes"));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        for (String name : new String[]{"Dispatch", "Invoke", "Render", "Clear"}) {
+            assertTrue(names.contains("de.michm.menu." + name), names.toString());
+        }
+    }
+
+    static class QuitMenu extends AssmusMenu {
+        QuitMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Quit", io);
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
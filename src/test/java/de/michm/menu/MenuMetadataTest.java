@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuMetadataTest {
+    @Test
+    void removingAnUnknownOptionKeepsTheSharedOptions() throws Exception {
+        List<Option> shared = MenuMetadata.of(SharedMenu.class).options();
+
+        try (SharedMenu menu = new SharedMenu(); SharedMenu other = new SharedMenu()) {
+            Option unknown = new Option("Unknown", "u", SharedMenu.class.getDeclaredMethod("quit"));
+
+            assertFalse(menu.remove(unknown));
+            assertSame(shared, options(menu));
+
+            assertTrue(menu.remove(menu.get(0)));
+            assertEquals(shared.size() - 1, (long) menu.size());
+            assertSame(shared, options(other));
+            assertEquals(shared.size(), (long) other.size());
+        }
+    }
+
+    private static Object options(AssmusMenu menu) throws ReflectiveOperationException {
+        Field field = AssmusMenu.class.getDeclaredField("options");
+        field.setAccessible(true);
+        return field.get(menu);
+    }
+
+    static class SharedMenu extends AssmusMenu {
+        SharedMenu() throws Exception {
+            super("Shared", new MemoryIO("", false));
+        }
+
+        @MenuOption(name = "Info", pattern = "i")
+        void info() {
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
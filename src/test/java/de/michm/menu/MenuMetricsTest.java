@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuMetricsTest {
+    @Test
+    void bucketsCoverTheDurations() {
+        long previous = -1;
+
+        for (long nanos = 0; nanos < 100_000; nanos++) {
+            assertBucket(nanos);
+            int bucket = MenuMetrics.Timer.bucket(nanos);
+
+            // The buckets are contiguous and grow with the duration.
+            assertTrue(bucket == previous || bucket == previous + 1, nanos + " in bucket " + bucket);
+            previous = bucket;
+        }
+
+        for (long nanos = Long.MAX_VALUE; nanos > 0; nanos /= 3) {
+            assertBucket(nanos);
+        }
+
+        assertEquals(MenuMetrics.Timer.BUCKETS - 9, (long) MenuMetrics.Timer.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, MenuMetrics.Timer.upperBound(MenuMetrics.Timer.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesAreBoundedByTheBuckets() {
+        MenuMetrics.Timer timer = new MenuMetrics.Timer();
+
+        for (int i = 1; i <= 100; i++) {
+            timer.record(i * 1_000_000L, i % 10 == 0);
+        }
+
+        timer.record(-5, false);
+
+        MenuMetrics.Stats stats = timer.stats("Test", "t");
+        assertEquals(101, stats.getCount());
+        assertEquals(10, stats.getErrors());
+        assertEquals(100_000_000L, stats.getMaxNanos());
+        assertEquals(5050_000_000L / 101, stats.getMeanNanos());
+
+        assertWithin(50_000_000L, stats.getPercentileNanos(0.5));
+        assertWithin(99_000_000L, stats.getPercentileNanos(0.99));
+        assertEquals(100_000_000L, stats.getPercentileNanos(1));
+        assertEquals(0, stats.getPercentileNanos(0));
+        assertEquals(0, new MenuMetrics.Timer().stats("Empty", null).getPercentileNanos(0.5));
+    }
+
+    /**
+     * Asserts that the passed duration lies in its bucket, whose
+     * upper bound exceeds it by 25% at most.
+     */
+    private static void assertBucket(long nanos) {
+        int bucket = MenuMetrics.Timer.bucket(nanos);
+        long upper = MenuMetrics.Timer.upperBound(bucket);
+
+        assertTrue(bucket >= 0 && bucket < MenuMetrics.Timer.BUCKETS, nanos + " in bucket " + bucket);
+        assertTrue(upper >= nanos && upper - nanos <= nanos / 4, nanos + " bound by " + upper);
+        assertTrue(bucket == 0 || MenuMetrics.Timer.upperBound(bucket - 1) < nanos, nanos + " below bucket " + bucket);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 4, actual + " for " + expected);
+    }
+}
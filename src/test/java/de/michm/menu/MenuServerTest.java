@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.michm.menu;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.rmi.AlreadyBoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuServerTest {
+    @Test
+    void failedSessionIsReportedToHandlerAndClient() throws Exception {
+        CompletableFuture<Exception> reported = new CompletableFuture<>();
+
+        try (MenuServer server = MenuServer.tcp(0, io -> {
+            throw new IllegalStateException("no menu today");
+        })) {
+            server.setErrorHandler(reported::complete);
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (Exception ignored) {
+                    // Closed by the test
+                }
+            });
+            serving.start();
+
+            try (Socket client = new Socket()) {
+                client.connect(server.getAddress());
+                InputStream in = client.getInputStream();
+                String output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+                assertTrue(output.contains("no menu today"), output);
+            }
+
+            assertTrue(reported.get(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    void failedOptionIsReportedToHandlerAndClient() throws Exception {
+        CompletableFuture<Exception> reported = new CompletableFuture<>();
+
+        try (MenuServer server = MenuServer.tcp(0, FailingMenu::new)) {
+            server.setTerminal(false);
+            server.setErrorHandler(reported::complete);
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (Exception ignored) {
+                    // Closed by the test
+                }
+            });
+            serving.start();
+
+            try (Socket client = new Socket()) {
+                client.connect(server.getAddress());
+                client.getOutputStream().write("f\n".getBytes(StandardCharsets.UTF_8));
+                client.getOutputStream().flush();
+                String output = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+                assertTrue(output.contains("Error: ") && output.contains("option failed"), output);
+            }
+
+            Exception e = reported.get(5, TimeUnit.SECONDS);
+            assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e));
+        }
+    }
+
+    static class FailingMenu extends AssmusMenu {
+        FailingMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Failing", io);
+        }
+
+        @MenuOption(name = "Fail", pattern = "f")
+        void fail() {
+            throw new IllegalStateException("option failed");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.rmi.AlreadyBoundException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagingTest {
+    @Test
+    void pagesAreTurnedAndClamped() throws Exception {
+        MemoryIO io = new MemoryIO("+\n+\n-\nq\n", true);
+
+        try (PagedMenu menu = new PagedMenu(io)) {
+            menu.setPageSize(10);
+            assertEquals(4, menu.getPageCount());
+
+            menu.setPage(99);
+            assertEquals(3, menu.getPage());
+            menu.setPage(-1);
+            assertEquals(0, menu.getPage());
+
+            menu.run();
+            assertEquals(1, menu.getPage());
+        }
+
+        String output = io.getOutput();
+        assertTrue(output.contains("Page 1/4") && output.contains("Page 2/4") && output.contains("Page 3/4"), output);
+        assertFalse(output.contains("Page 4/4"), output);
+    }
+
+    @Test
+    void pageSizeIsDerivedFromTheRows() throws Exception {
+        try (PagedMenu menu = new PagedMenu(new ResizingIO("", List.of(), 17))) {
+            assertEquals(17 - AssmusMenu.RESERVED_ROWS, menu.getPageSize());
+        }
+
+        try (PagedMenu menu = new PagedMenu(new ResizingIO("", List.of(), 0))) {
+            assertEquals(AssmusMenu.DEFAULT_ROWS - AssmusMenu.RESERVED_ROWS, menu.getPageSize());
+
+            menu.setPageSize(5);
+            assertEquals(5, menu.getPageSize());
+            assertEquals(7, menu.getPageCount());
+        }
+    }
+
+    @Test
+    void resizeIsPolledInRawMode() throws Exception {
+        // The terminal grows after the first page is turned.
+        ResizingIO io = new ResizingIO("+q", List.of(17, 37), 0);
+
+        try (PagedMenu menu = new PagedMenu(io)) {
+            menu.setRawInput(true);
+            menu.run();
+        }
+
+        String output = io.output.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("Page 1/4"), output);
+        assertTrue(output.contains("Page 2/2"), output);
+    }
+
+    static class PagedMenu extends AssmusMenu {
+        PagedMenu(TerminalIO io) throws Exception {
+            super("Paged", io);
+
+            for (int i = 1; i <= 30; i++) {
+                add(new Option("Option " + i, String.format("o%02d", i), PagedMenu.class.getDeclaredMethod("noop")));
+            }
+        }
+
+        void noop() {
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+
+    /**
+     * An interactive ANSI terminal, whose height changes with every query.
+     */
+    static class ResizingIO implements TerminalIO {
+        final private BufferedReader reader;
+        final private ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final private PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        final private Queue<Integer> sizes;
+        private int rows;
+
+        ResizingIO(String input, List<Integer> sizes, int rows) {
+            this.reader = new BufferedReader(new StringReader(input));
+            this.sizes = new ArrayDeque<>(sizes);
+            this.rows = rows;
+        }
+
+        @Override
+        public BufferedReader reader() {
+            return reader;
+        }
+
+        @Override
+        public PrintStream out() {
+            return out;
+        }
+
+        @Override
+        public Charset charset() {
+            return StandardCharsets.UTF_8;
+        }
+
+        @Override
+        public boolean isInteractive() {
+            return true;
+        }
+
+        @Override
+        public boolean isAnsi() {
+            return true;
+        }
+
+        @Override
+        public int rows() {
+            return rows;
+        }
+
+        @Override
+        public int refreshRows() {
+            if (!sizes.isEmpty()) {
+                rows = sizes.poll();
+            }
+
+            return rows;
+        }
+
+        @Override
+        public boolean setRaw(boolean raw) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            out.flush();
+        }
+    }
+}
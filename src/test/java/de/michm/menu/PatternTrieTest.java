@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternTrieTest {
+    @Test
+    void prefixesAreResolved() throws Exception {
+        Option add = option("add");
+        Option addUser = option("adduser");
+        Option list = option("list");
+        PatternTrie trie = new PatternTrie(List.of(add, addUser, list));
+        List<String> candidates = new ArrayList<>();
+
+        // The equal pattern wins over a longer one.
+        assertEquals(add, trie.resolve("add", candidates));
+        assertEquals(addUser, trie.resolve("addu", candidates));
+        assertEquals(list, trie.resolve("l", candidates));
+        assertNull(trie.resolve("x", candidates));
+        assertTrue(candidates.isEmpty());
+
+        assertNull(trie.resolve("a", candidates));
+        assertEquals(List.of("add", "adduser"), candidates);
+
+        assertEquals(3, trie.count(""));
+        assertEquals(2, trie.count("ad"));
+        assertEquals(1, trie.count("addu"));
+        assertEquals(0, trie.count("lists"));
+    }
+
+    @Test
+    void candidatesAreLimited() throws Exception {
+        List<Option> options = new ArrayList<>();
+
+        for (int i = 0; i < PatternTrie.MAX_CANDIDATES + 5; i++) {
+            options.add(option(String.format("o%02d", i)));
+        }
+
+        PatternTrie trie = new PatternTrie(options);
+        List<String> candidates = new ArrayList<>();
+
+        assertNull(trie.resolve("o", candidates));
+        assertEquals(PatternTrie.MAX_CANDIDATES, candidates.size());
+        assertEquals("o00", candidates.get(0));
+        assertEquals(String.format("o%02d", PatternTrie.MAX_CANDIDATES - 1), candidates.get(candidates.size() - 1));
+        assertEquals(PatternTrie.MAX_CANDIDATES + 5, trie.count("o"));
+    }
+
+    @Test
+    void removedPatternsArePruned() throws Exception {
+        Option add = option("add");
+        Option addUser = option("adduser");
+        PatternTrie trie = new PatternTrie(List.of(add, addUser));
+
+        // An option not bound to the pattern is ignored.
+        trie.remove(option("addus"));
+        assertEquals(2, trie.count("a"));
+
+        trie.remove(add);
+        assertEquals(1, trie.count("a"));
+        assertEquals(addUser, trie.resolve("a", new ArrayList<>()));
+
+        trie.remove(addUser);
+        assertEquals(0, trie.count(""));
+        assertNull(trie.resolve("a", new ArrayList<>()));
+
+        trie.add(add);
+        assertEquals(add, trie.resolve("a", new ArrayList<>()));
+    }
+
+    private static Option option(String pattern) throws NoSuchMethodException {
+        return new Option(pattern, pattern, SearchIndexTest.Noop.class.getDeclaredMethod("noop"));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.util.InputMismatchException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitivesTest {
+    @Test
+    void longsAreParsedUpToTheirLimits() {
+        assertEquals(0L, parseLong("0"));
+        assertEquals(-42L, parseLong("  -42 "));
+        assertEquals(42L, parseLong("+42"));
+        assertEquals(Long.MAX_VALUE, parseLong("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, parseLong("-9223372036854775808"));
+
+        assertThrows(InputMismatchException.class, () -> parseLong("9223372036854775808"));
+        assertThrows(InputMismatchException.class, () -> parseLong("-9223372036854775809"));
+        assertThrows(InputMismatchException.class, () -> parseLong("99999999999999999999"));
+    }
+
+    @Test
+    void intsAreParsedUpToTheirLimits() {
+        assertEquals(Integer.MAX_VALUE, parseInt("2147483647"));
+        assertEquals(Integer.MIN_VALUE, parseInt("-2147483648"));
+
+        assertThrows(InputMismatchException.class, () -> parseInt("2147483648"));
+        assertThrows(InputMismatchException.class, () -> parseInt("-2147483649"));
+    }
+
+    @Test
+    void malformedNumbersAreRejected() {
+        for (String input : new String[]{"", " ", "+", "-", "1 2", "0x10", "1.5", "1e3", "--1", "\uFF11x"}) {
+            assertThrows(InputMismatchException.class, () -> parseLong(input));
+        }
+
+        for (String input : new String[]{"", "+", "-", ".", "1e", "1e+", "1..2", "1.2.3", "e5", "1e5x", "\uFF11"}) {
+            assertThrows(InputMismatchException.class, () -> parseDouble(input));
+        }
+    }
+
+    @Test
+    void nonAsciiDigitsAreParsedLikeTheJdk() {
+        assertEquals(Long.parseLong("\uFF11\uFF12"), parseLong("\uFF11\uFF12"));
+        assertEquals(-12L, parseLong(" -\uFF11\uFF12 "));
+        assertEquals(12, parseInt("\u0661\u0662"));
+    }
+
+    @Test
+    void doublesAgreeWithTheJdkAtTheFastPathBoundary() {
+        String[] inputs = {
+                "0", "-0", "0.1", "-1.5", ".5", "5.", "1e22", "1e23", "1e-22", "1e-23",
+                "9007199254740992", "9007199254740993", "9007199254740992e22", "9007199254740992e23",
+                "9007199254740993e22", "9007199254740992e-22", "9007199254740992e-23",
+                "123456789012345678", "1234567890123456789", "4.9e-324", "1.7976931348623157e308",
+                "1e400", "-1e400", "1e-400", "NaN", "Infinity", "-Infinity", "  2.5  "
+        };
+
+        for (String input : inputs) {
+            assertEquals(Double.parseDouble(input.trim()), parseDouble(input), input);
+        }
+    }
+
+    private static long parseLong(String text) {
+        return Primitives.parseLong(text.toCharArray(), 0, text.length());
+    }
+
+    private static int parseInt(String text) {
+        return Primitives.parseInt(text.toCharArray(), 0, text.length());
+    }
+
+    private static double parseDouble(String text) {
+        return Primitives.parseDouble(text.toCharArray(), 0, text.length());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawInputTest {
+    @Test
+    void optionWithArgumentsWaitsForEnter() throws Exception {
+        // "i" is dispatched without Enter, "a" waits for its arguments.
+        PagingTest.ResizingIO io = new PagingTest.ResizingIO("ia 4 bob\nq", List.of(), 24);
+
+        try (UserMenu menu = new UserMenu(io)) {
+            menu.setRawInput(true);
+            menu.run();
+
+            assertEquals(1, menu.infos);
+            assertEquals(List.of("4:bob"), menu.added);
+        }
+    }
+
+    static class UserMenu extends AssmusMenu {
+        final private List<String> added = new ArrayList<>();
+        private int infos;
+
+        UserMenu(TerminalIO io) throws Exception {
+            super("Users", io);
+        }
+
+        @MenuOption(name = "Add", pattern = "add")
+        void add(int id, String name) {
+            added.add(id + ":" + name);
+        }
+
+        @MenuOption(name = "Info", pattern = "info")
+        void info() {
+            infos++;
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+}
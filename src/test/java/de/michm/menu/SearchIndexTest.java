@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.lang.reflect.Method;
+import java.rmi.AlreadyBoundException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+    @Test
+    void bestMatchComesFirst() throws Exception {
+        SearchIndex index = index("Settings", "Export users", "Exit", "Export");
+
+        assertEquals(List.of("Export", "Export users", "Exit"), names(index.search("export", 3)));
+        assertEquals(List.of("Export", "Export users"), names(index.search("exprt", 2)));
+        assertTrue(index.search("zzz", 3).isEmpty());
+    }
+
+    @Test
+    void equalScoresRankTheShorterNameFirst() throws Exception {
+        // Both names share all n-grams of the query and have as many n-grams.
+        SearchIndex index = index("ab ab ab", "ab ab");
+        assertEquals(List.of("ab ab", "ab ab ab"), names(index.search("ab", 2)));
+    }
+
+    @Test
+    void queryGramsNoNameContainsLowerTheScore() throws Exception {
+        SearchIndex index = index("Ex", "Export all the user settings");
+
+        assertEquals(List.of("Ex", "Export all the user settings"), names(index.search("export", 2)));
+        // The unknown n-grams weigh the short name down more than the long one.
+        assertEquals(List.of("Export all the user settings", "Ex"), names(index.search("exportqqqqqqqq", 2)));
+    }
+
+    @Test
+    void removedOptionsAreNotFound() throws Exception {
+        SearchIndex index = index("Add user", "Delete user");
+        index.remove(option("Add user", "o0"));
+        assertEquals(List.of("Delete user"), names(index.search("user", 3)));
+
+        // An option, which isn't indexed, is ignored, even if its pattern is.
+        index.remove(option("Delete user", "o0"));
+        index.add(option("Copy user", "o2"));
+        assertEquals(List.of("Copy user", "Delete user"), names(index.search("user", 3)));
+
+        index.remove(index.search("delete", 1).get(0));
+        assertEquals(List.of("Copy user"), names(index.search("user", 3)));
+    }
+
+    @Test
+    void commonGramsAreDroppedIfTheQueryHasRareOnes() throws Exception {
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < SearchIndex.COMMON + 44; i++) {
+            names.add(String.format("Item %03d", i));
+        }
+
+        names.add("Zebra");
+        SearchIndex index = index(names.toArray(new String[0]));
+
+        assertEquals(List.of("Zebra"), names(index.search("item zebra", 5)));
+        assertEquals(5, index.search("item", 5).size());
+    }
+
+    @Test
+    void limitIsValidatedBeforeTheSearch() throws Exception {
+        SearchIndex index = index("Add user", "Delete user");
+
+        assertThrows(IllegalArgumentException.class, () -> index.search("add user", -1));
+        assertTrue(index.search("user", 0).isEmpty());
+        assertEquals(List.of("Delete user"), names(index.search("dele", 3)));
+        assertEquals(2, index.search("user", 10).size());
+    }
+
+    private static SearchIndex index(String... names) throws Exception {
+        List<Option> options = new ArrayList<>();
+
+        for (String name : names) {
+            options.add(option(name, "o" + options.size()));
+        }
+
+        return new SearchIndex(options);
+    }
+
+    private static Option option(String name, String pattern) throws Exception {
+        Method action = Noop.class.getDeclaredMethod("noop");
+        return new Option(name, pattern, action);
+    }
+
+    private static List<String> names(List<Option> options) {
+        List<String> names = new ArrayList<>();
+
+        for (Option option : options) {
+            names.add(option.getName());
+        }
+
+        return names;
+    }
+
+    static class Noop extends AssmusMenu {
+        Noop(TerminalIO io) throws AlreadyBoundException {
+            super("Noop", io);
+        }
+
+        void noop() {
+        }
+    }
+}
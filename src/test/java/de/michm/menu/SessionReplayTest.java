@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022. Manfred Michaelis <mm@michm.de>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.michm.menu;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.AlreadyBoundException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionReplayTest {
+    @Test
+    void recordedSessionIsReplayedWithoutMismatches() throws Exception {
+        Path journal = Files.createTempFile("session", ".amj");
+
+        try {
+            record(journal, "a\nzzz\nq\n");
+
+            SessionReplay.Result result = SessionReplay.replay(journal, new CountingMenu(new MemoryIO("", false)), null);
+            assertEquals(3, result.getSteps());
+            assertEquals(0, result.getMismatches(), result.getDifferences().toString());
+        } finally {
+            Files.delete(journal);
+        }
+    }
+
+    @Test
+    void everySessionOfAJournalIsReplayed() throws Exception {
+        Path journal = Files.createTempFile("session", ".amj");
+
+        try {
+            record(journal, "a\nq\n");
+            record(journal, "a\na\nq\n");
+
+            SessionReplay.Result result = SessionReplay.replay(journal, CountingMenu::new, null);
+            assertEquals(5, result.getSteps());
+            assertEquals(0, result.getMismatches(), result.getDifferences().toString());
+
+            assertThrows(IOException.class, () -> SessionReplay.replay(journal, new CountingMenu(new MemoryIO("", false)), null));
+        } finally {
+            Files.delete(journal);
+        }
+    }
+
+    @Test
+    void everyMismatchIsDescribed() throws Exception {
+        Path journal = Files.createTempFile("session", ".amj");
+
+        try {
+            record(journal, "a\nb\nq\n");
+
+            // The replayed menu quits on a, so b and q are only recorded.
+            SessionReplay.Result result = SessionReplay.replay(journal, QuittingMenu::new, null);
+            assertEquals(1, result.getSteps());
+            assertEquals(2, result.getMismatches());
+            assertEquals(2, result.getDifferences().size(), result.getDifferences().toString());
+        } finally {
+            Files.delete(journal);
+        }
+    }
+
+    private static void record(Path journal, String input) throws Exception {
+        try (SessionRecorder recorder = new SessionRecorder(journal);
+             CountingMenu menu = new CountingMenu(new MemoryIO(input, false))) {
+            menu.setRecorder(recorder);
+            menu.run();
+        }
+    }
+
+    static class CountingMenu extends AssmusMenu {
+        int count;
+
+        CountingMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Counting", io);
+        }
+
+        @MenuOption(name = "Add", pattern = "a")
+        int add() {
+            return ++count;
+        }
+
+        @MenuOption(name = "Bump", pattern = "b")
+        void bump() {
+            count += 10;
+        }
+
+        @MenuOption(name = "Quit", pattern = "q")
+        boolean quit() {
+            return true;
+        }
+    }
+
+    static class QuittingMenu extends AssmusMenu {
+        QuittingMenu(TerminalIO io) throws AlreadyBoundException {
+            super("Quitting", io);
+        }
+
+        @MenuOption(name = "Add", pattern = "a")
+        boolean add() {
+            return true;
+        }
+    }
+}